@@ -0,0 +1,103 @@
+package com.mtech.restaurant.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mtech.restaurant.domain.dtos.AddressDto;
+import com.mtech.restaurant.domain.dtos.RestaurantSummaryDto;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.services.impl.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Page;
+
+// Caches are registered up front so Boot binds their stats to Micrometer (cache.gets, cache.evictions, ...)
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    public static final String RESTAURANTS_CACHE = "restaurants";
+    public static final String RESTAURANT_SEARCH_CACHE = "restaurantSearch";
+    public static final String RESTAURANT_FACETS_CACHE = "restaurantFacets";
+
+    @Bean
+    public CacheManager cacheManager(
+            @Value("${app.cache.restaurants.maximum-size:10000}") long restaurantsMaximumSize,
+            @Value("${app.cache.restaurants.ttl:PT5M}") Duration restaurantsTtl,
+            @Value("${app.cache.search.maximum-bytes:33554432}") long searchMaximumBytes,
+            @Value("${app.cache.search.ttl:PT30S}") Duration searchTtl,
+            @Value("${app.cache.facets.ttl:PT1M}") Duration facetsTtl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(
+                RESTAURANTS_CACHE,
+                Caffeine.newBuilder()
+                        .maximumSize(restaurantsMaximumSize)
+                        .expireAfterWrite(restaurantsTtl)
+                        .recordStats()
+                        .build());
+        // Search pages vary a lot in size, so this one is bounded by estimated bytes. Restaurant writes
+        // flush it; review writes don't, so the short TTL bounds how stale a page's ratings can get
+        cacheManager.registerCustomCache(
+                RESTAURANT_SEARCH_CACHE,
+                Caffeine.newBuilder()
+                        .maximumWeight(searchMaximumBytes)
+                        .weigher((key, value) -> estimateSearchPageBytes(value))
+                        .expireAfterWrite(searchTtl)
+                        .recordStats()
+                        .build());
+        // Only facets of the whole catalogue are cached, so a handful of entries is plenty
+        cacheManager.registerCustomCache(
+                RESTAURANT_FACETS_CACHE,
+                Caffeine.newBuilder()
+                        .maximumSize(16)
+                        .expireAfterWrite(facetsTtl)
+                        .recordStats()
+                        .build());
+        return cacheManager;
+    }
+
+    // Concurrent cache misses for the same restaurant share a single Elasticsearch lookup
+    @Bean
+    public SingleFlight<String, Optional<Restaurant>> restaurantLoads(MeterRegistry meterRegistry) {
+        return new SingleFlight<>("restaurant", meterRegistry);
+    }
+
+    // Rough retained size of a cached page of summaries; only needs to be proportional
+    private static int estimateSearchPageBytes(Object value) {
+        if (!(value instanceof Page<?> page)) {
+            return 1024;
+        }
+        long bytes = 256;
+        for (Object item : page.getContent()) {
+            bytes += item instanceof RestaurantSummaryDto summary ? estimateSummaryBytes(summary) : 512;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    private static long estimateSummaryBytes(RestaurantSummaryDto summary) {
+        long bytes = 96 + chars(summary.getId()) + chars(summary.getName()) + chars(summary.getCuisineType());
+        AddressDto address = summary.getAddress();
+        if (address != null) {
+            bytes += 64
+                    + chars(address.getStreetNumber())
+                    + chars(address.getStreetName())
+                    + chars(address.getUnit())
+                    + chars(address.getCity())
+                    + chars(address.getState())
+                    + chars(address.getPostalCode())
+                    + chars(address.getCountry());
+        }
+        if (summary.getPhotos() != null) {
+            bytes += summary.getPhotos().size() * 160L;
+        }
+        return bytes;
+    }
+
+    private static long chars(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
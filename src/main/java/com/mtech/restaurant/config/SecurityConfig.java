@@ -29,6 +29,8 @@ public class SecurityConfig {
             HttpSecurity http, JwtAuthenticationConverter jwtAuthenticationConverter) throws Exception {
         http.authorizeHttpRequests(
                         authorizeRequests -> authorizeRequests
+                                .requestMatchers("/api/photos/uploads/**")
+                                .authenticated() // Upload sessions belong to their creator
                                 .requestMatchers(HttpMethod.GET, "/api/photos/**")
                                 .permitAll()
                                 .requestMatchers(HttpMethod.GET, "/actuator/**")
@@ -2,9 +2,14 @@ package com.mtech.restaurant.controllers;
 
 import com.mtech.restaurant.domain.dtos.ErrorDto;
 import com.mtech.restaurant.exceptions.BaseException;
+import com.mtech.restaurant.exceptions.InvalidSearchRequestException;
+import com.mtech.restaurant.exceptions.InvalidUploadException;
 import com.mtech.restaurant.exceptions.RestaurantNotFoundException;
 import com.mtech.restaurant.exceptions.ReviewNotAllowedException;
 import com.mtech.restaurant.exceptions.StorageException;
+import com.mtech.restaurant.exceptions.UploadSessionNotFoundException;
+import com.mtech.restaurant.exceptions.UploadTooLargeException;
+import com.mtech.restaurant.exceptions.WriteConflictException;
 import java.util.stream.Collectors;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
@@ -86,4 +91,54 @@ public class ErrorController {
                 .build();
         return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler(WriteConflictException.class)
+    public ResponseEntity<ErrorDto> handleWriteConflictException(WriteConflictException ex) {
+        log.error("Caught WriteConflictException", ex);
+        ErrorDto error = ErrorDto.builder()
+                .status(HttpStatus.CONFLICT.value())
+                .message("The resource was modified concurrently, please retry")
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler(InvalidSearchRequestException.class)
+    public ResponseEntity<ErrorDto> handleInvalidSearchRequestException(InvalidSearchRequestException ex) {
+        log.error("Caught InvalidSearchRequestException", ex);
+        ErrorDto error = ErrorDto.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UploadSessionNotFoundException.class)
+    public ResponseEntity<ErrorDto> handleUploadSessionNotFoundException(UploadSessionNotFoundException ex) {
+        log.error("Caught UploadSessionNotFoundException", ex);
+        ErrorDto error = ErrorDto.builder()
+                .status(HttpStatus.NOT_FOUND.value())
+                .message("The specified upload wasn't found or has expired")
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.NOT_FOUND);
+    }
+
+    @ExceptionHandler(InvalidUploadException.class)
+    public ResponseEntity<ErrorDto> handleInvalidUploadException(InvalidUploadException ex) {
+        log.error("Caught InvalidUploadException", ex);
+        ErrorDto error = ErrorDto.builder()
+                .status(HttpStatus.BAD_REQUEST.value())
+                .message(ex.getMessage())
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler(UploadTooLargeException.class)
+    public ResponseEntity<ErrorDto> handleUploadTooLargeException(UploadTooLargeException ex) {
+        log.error("Caught UploadTooLargeException", ex);
+        ErrorDto error = ErrorDto.builder()
+                .status(HttpStatus.PAYLOAD_TOO_LARGE.value())
+                .message(ex.getMessage())
+                .build();
+        return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
+    }
 }
@@ -1,12 +1,21 @@
 package com.mtech.restaurant.controllers;
 
+import com.mtech.restaurant.domain.PhotoSize;
 import com.mtech.restaurant.domain.dtos.PhotoDto;
+import com.mtech.restaurant.domain.dtos.PhotoUploadResultDto;
 import com.mtech.restaurant.domain.entities.Photo;
 import com.mtech.restaurant.mappers.PhotoMapper;
 import com.mtech.restaurant.services.PhotoService;
+import com.mtech.restaurant.services.StoredFileAttributes;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.MediaTypeFactory;
@@ -19,6 +28,15 @@ import org.springframework.web.multipart.MultipartFile;
 @RequestMapping("/api/photos")
 @Slf4j
 public class PhotoController {
+    // Photos are immutable once stored, so browsers and CDNs may keep them for a year
+    private static final CacheControl PHOTO_CACHE_CONTROL =
+            CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    private static final CacheControl PENDING_VARIANT_CACHE_CONTROL =
+            CacheControl.maxAge(1, TimeUnit.MINUTES).cachePublic();
+
+    // RFC 9530 digest of the full representation, unchanged by Range requests
+    private static final String REPR_DIGEST = "Repr-Digest";
+
     private final PhotoService photoService;
     private final PhotoMapper photoMapper;
 
@@ -28,14 +46,67 @@ public class PhotoController {
         return photoMapper.toDto(savedPhoto);
     }
 
+    // Several files in one request, stored in parallel; failures are reported per file
+    @PostMapping("/batch")
+    public List<PhotoUploadResultDto> uploadPhotos(@RequestParam("files") List<MultipartFile> files) {
+        return photoService.uploadPhotos(files).stream()
+                .map(photoMapper::toDto)
+                .toList();
+    }
+
+    // Streams a raw image body straight to storage, skipping multipart parsing and its temp file
+    @PostMapping(value = "/raw", consumes = "image/*")
+    public PhotoDto uploadRawPhoto(HttpServletRequest request) throws IOException {
+        Photo savedPhoto = photoService.uploadPhoto(request.getInputStream(), request.getContentLengthLong());
+        return photoMapper.toDto(savedPhoto);
+    }
+
     @GetMapping("/{id:.+}")
-    public ResponseEntity<Resource> getPhoto(@PathVariable String id) {
+    public ResponseEntity<Resource> getPhoto(@PathVariable String id, @RequestParam(required = false) String size) {
+        Optional<PhotoSize> photoSize = PhotoSize.fromParameter(size);
+        Optional<Resource> variant = photoSize.flatMap(s -> photoService.getPhotoVariantAsResource(id, s));
+        if (variant.isPresent()) {
+            return servePhoto(variant.get(), PHOTO_CACHE_CONTROL);
+        }
+        // While a requested variant is pending, serve the original without pinning it to this URL
+        CacheControl cacheControl = photoSize.isPresent() ? PENDING_VARIANT_CACHE_CONTROL : PHOTO_CACHE_CONTROL;
         return photoService
                 .getPhotoAsResource(id)
-                .map(photo -> ResponseEntity.ok()
-                        .contentType(MediaTypeFactory.getMediaType(photo).orElse(MediaType.APPLICATION_OCTET_STREAM))
-                        .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                        .body(photo))
+                .map(photo -> servePhoto(photo, cacheControl))
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // Spring answers If-None-Match / If-Modified-Since from the ETag and Last-Modified headers with a
+    // 304 without writing the body, and Range requests on a Resource body with 206 partial content
+    private static ResponseEntity<Resource> servePhoto(Resource photo, CacheControl cacheControl) {
+        StoredFileAttributes attributes = photo instanceof StoredFileAttributes stored ? stored : null;
+        // Indexed and cached photos carry their content type; only the file system fallback derives it
+        MediaType contentType = attributes != null
+                ? attributes.getContentType()
+                : MediaTypeFactory.getMediaType(photo).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        // Stored photo files are never rewritten, so the file name is a strong validator
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .eTag("\"" + photo.getFilename() + "\"")
+                .cacheControl(cacheControl);
+        long lastModified = lastModified(photo);
+        if (lastModified >= 0) {
+            response.lastModified(lastModified);
+        }
+        if (attributes != null) {
+            attributes.getDigest().ifPresent(digest -> response.header(REPR_DIGEST, "sha-256=:" + digest + ":"));
+        }
+        return response.body(photo);
+    }
+
+    private static long lastModified(Resource photo) {
+        try {
+            return photo.lastModified();
+        } catch (IOException e) {
+            log.debug("Could not read last modified time of photo: " + photo.getFilename(), e);
+            return -1;
+        }
+    }
 }
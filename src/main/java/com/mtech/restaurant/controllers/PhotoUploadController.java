@@ -0,0 +1,66 @@
+package com.mtech.restaurant.controllers;
+
+import com.mtech.restaurant.domain.PhotoUploadStatus;
+import com.mtech.restaurant.domain.dtos.PhotoDto;
+import com.mtech.restaurant.domain.dtos.PhotoUploadCreateRequestDto;
+import com.mtech.restaurant.domain.dtos.PhotoUploadDto;
+import com.mtech.restaurant.domain.entities.Photo;
+import com.mtech.restaurant.mappers.PhotoMapper;
+import com.mtech.restaurant.services.PhotoUploadService;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.web.bind.annotation.*;
+
+@RequiredArgsConstructor
+@RestController
+@SecurityRequirement(name = "Keycloak")
+@RequestMapping("/api/photos/uploads")
+public class PhotoUploadController {
+    private final PhotoUploadService photoUploadService;
+    private final PhotoMapper photoMapper;
+
+    @PostMapping
+    public ResponseEntity<PhotoUploadDto> createUpload(
+            @Valid @RequestBody PhotoUploadCreateRequestDto upload, @AuthenticationPrincipal Jwt jwt) {
+        PhotoUploadStatus status =
+                photoUploadService.createUpload(jwt.getSubject(), upload.getFilename(), upload.getSize());
+        return ResponseEntity.ok(photoMapper.toDto(status));
+    }
+
+    // The chunk is the raw request body (application/octet-stream), written at the given offset
+    @PutMapping("/{uploadId}")
+    public ResponseEntity<PhotoUploadDto> writeChunk(
+            @PathVariable String uploadId,
+            @RequestParam long offset,
+            HttpServletRequest request,
+            @AuthenticationPrincipal Jwt jwt)
+            throws IOException {
+        PhotoUploadStatus status =
+                photoUploadService.writeChunk(jwt.getSubject(), uploadId, offset, request.getInputStream());
+        return ResponseEntity.ok(photoMapper.toDto(status));
+    }
+
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<PhotoUploadDto> getUpload(@PathVariable String uploadId, @AuthenticationPrincipal Jwt jwt) {
+        return ResponseEntity.ok(photoMapper.toDto(photoUploadService.getUpload(jwt.getSubject(), uploadId)));
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<PhotoDto> completeUpload(
+            @PathVariable String uploadId, @AuthenticationPrincipal Jwt jwt) {
+        Photo photo = photoUploadService.completeUpload(jwt.getSubject(), uploadId);
+        return ResponseEntity.ok(photoMapper.toDto(photo));
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable String uploadId, @AuthenticationPrincipal Jwt jwt) {
+        photoUploadService.abortUpload(jwt.getSubject(), uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
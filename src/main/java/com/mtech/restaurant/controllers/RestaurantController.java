@@ -1,17 +1,32 @@
 package com.mtech.restaurant.controllers;
 
+import com.mtech.restaurant.config.CacheConfig;
+import com.mtech.restaurant.domain.CursorPage;
+import com.mtech.restaurant.domain.OpeningIntervals;
 import com.mtech.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.mtech.restaurant.domain.RestaurantSearchKey;
 import com.mtech.restaurant.domain.dtos.RestaurantCreateUpdateRequestDto;
 import com.mtech.restaurant.domain.dtos.RestaurantDto;
+import com.mtech.restaurant.domain.dtos.RestaurantPinDto;
+import com.mtech.restaurant.domain.dtos.RestaurantSuggestionDto;
 import com.mtech.restaurant.domain.dtos.RestaurantSummaryDto;
 import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.exceptions.InvalidSearchRequestException;
 import com.mtech.restaurant.mappers.RestaurantMapper;
 import com.mtech.restaurant.services.RestaurantService;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Callable;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -20,8 +35,15 @@ import org.springframework.web.bind.annotation.*;
 @RequiredArgsConstructor
 @SecurityRequirement(name = "Keycloak")
 public class RestaurantController {
+    // Matches Elasticsearch's default index.max_result_window
+    private static final int MAX_OFFSET_WINDOW = 10_000;
+    private static final int MAX_SCROLL_SIZE = 100;
+    private static final int MAX_PINS = 500;
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final RestaurantService restaurantService;
     private final RestaurantMapper restaurantMapper;
+    private final CacheManager cacheManager;
 
     @PostMapping
     public ResponseEntity<RestaurantDto> createRestaurant(
@@ -40,13 +62,147 @@ public class RestaurantController {
             @RequestParam(required = false) Float latitude,
             @RequestParam(required = false) Float longitude,
             @RequestParam(required = false) Float radius,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime openAt,
             @RequestParam(defaultValue = "1") int page,
-            @RequestParam(defaultValue = "20") int size) {
-        Page<Restaurant> searchResult = restaurantService.searchRestaurants(
-                q, minRating, latitude, longitude, radius, PageRequest.of(page - 1, size));
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "relevance") String sort,
+            @RequestParam(defaultValue = "false") boolean facets) {
+        // Deep offsets get expensive for Elasticsearch, use the scroll endpoint instead
+        if (page < 1 || size < 1 || (long) page * size > MAX_OFFSET_WINDOW) {
+            throw new InvalidSearchRequestException(
+                    "Offset paging is limited to the first " + MAX_OFFSET_WINDOW + " results");
+        }
+        // Hot parameter combinations are answered from the search cache, already mapped
+        RestaurantSearchKey key =
+                RestaurantSearchKey.of(q, minRating, latitude, longitude, radius, openAt, page, size, sort, facets);
+        PageRequest pageRequest = PageRequest.of(page - 1, size, toSort(sort));
+        return cachedSearch(key, () -> {
+            if (key.isFacets()) {
+                return restaurantService
+                        .searchRestaurantsWithFacets(
+                                key.getQuery(),
+                                key.getMinRating(),
+                                key.getLatitude(),
+                                key.getLongitude(),
+                                key.getRadius(),
+                                key.getOpenAtMinute(),
+                                pageRequest)
+                        .map(restaurantMapper::toSummaryDto)
+                        .mapFacets(restaurantMapper::toFacetsDto);
+            }
+            return restaurantService
+                    .searchRestaurants(
+                            key.getQuery(),
+                            key.getMinRating(),
+                            key.getLatitude(),
+                            key.getLongitude(),
+                            key.getRadius(),
+                            key.getOpenAtMinute(),
+                            pageRequest)
+                    .map(restaurantMapper::toSummaryDto);
+        });
+    }
+
+    private Page<RestaurantSummaryDto> cachedSearch(
+            RestaurantSearchKey key, Callable<Page<RestaurantSummaryDto>> search) {
+        Cache searchCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.RESTAURANT_SEARCH_CACHE));
+        try {
+            return searchCache.get(key, search);
+        } catch (Cache.ValueRetrievalException e) {
+            // Rethrow what the search threw so ErrorController maps it as usual
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @GetMapping("/scroll")
+    public CursorPage<RestaurantSummaryDto> scrollRestaurants(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Float minRating,
+            @RequestParam(required = false) Float latitude,
+            @RequestParam(required = false) Float longitude,
+            @RequestParam(required = false) Float radius,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime openAt,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "relevance") String sort) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new InvalidSearchRequestException("Scroll size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        CursorPage<Restaurant> searchResult = restaurantService.scrollRestaurants(
+                q,
+                minRating,
+                latitude,
+                longitude,
+                radius,
+                openAt == null ? null : OpeningIntervals.minuteOfWeek(openAt),
+                toSort(sort),
+                cursor,
+                size);
         return searchResult.map(restaurantMapper::toSummaryDto);
     }
 
+    @GetMapping("/nearby")
+    public List<RestaurantPinDto> findNearby(
+            @RequestParam float latitude,
+            @RequestParam float longitude,
+            @RequestParam float radius,
+            @RequestParam(required = false) Float minRating,
+            @RequestParam(defaultValue = "100") int limit) {
+        checkPinLimit(limit);
+        return restaurantService.findNearby(latitude, longitude, radius, minRating, limit).stream()
+                .map(restaurantMapper::toPinDto)
+                .toList();
+    }
+
+    // Pins for a map viewport
+    @GetMapping("/map")
+    public List<RestaurantPinDto> findWithin(
+            @RequestParam float minLatitude,
+            @RequestParam float minLongitude,
+            @RequestParam float maxLatitude,
+            @RequestParam float maxLongitude,
+            @RequestParam(required = false) Float minRating,
+            @RequestParam(defaultValue = "200") int limit) {
+        checkPinLimit(limit);
+        return restaurantService
+                .findWithin(minLatitude, minLongitude, maxLatitude, maxLongitude, minRating, limit)
+                .stream()
+                .map(restaurantMapper::toPinDto)
+                .toList();
+    }
+
+    @GetMapping("/suggest")
+    public List<RestaurantSuggestionDto> suggestRestaurants(
+            @RequestParam String prefix, @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > MAX_SUGGESTIONS) {
+            throw new InvalidSearchRequestException("Limit must be between 1 and " + MAX_SUGGESTIONS);
+        }
+        if (prefix.isBlank()) {
+            return List.of();
+        }
+        return restaurantService.suggestRestaurants(prefix, limit).stream()
+                .map(restaurantMapper::toSuggestionDto)
+                .toList();
+    }
+
+    private static void checkPinLimit(int limit) {
+        if (limit < 1 || limit > MAX_PINS) {
+            throw new InvalidSearchRequestException("Limit must be between 1 and " + MAX_PINS);
+        }
+    }
+
+    // Sorting happens in Elasticsearch on the denormalized rating stats
+    private Sort toSort(String sort) {
+        return switch (sort) {
+            case "popularity" -> Sort.by(Sort.Direction.DESC, "totalReviews", "averageRating");
+            case "rating" -> Sort.by(Sort.Direction.DESC, "averageRating", "totalReviews");
+            default -> Sort.unsorted();
+        };
+    }
+
     @GetMapping("/{restaurantId}")
     public ResponseEntity<RestaurantDto> getRestaurant(@PathVariable String restaurantId) {
         return restaurantService
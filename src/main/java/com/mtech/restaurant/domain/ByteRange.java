@@ -0,0 +1,15 @@
+package com.mtech.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ByteRange {
+    private long start; // Inclusive
+    private long end; // Exclusive
+}
@@ -0,0 +1,17 @@
+package com.mtech.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetBucket {
+    private String key;
+    private Double from; // Numeric buckets only; null for terms and open ends
+    private Double to;
+    private long count;
+}
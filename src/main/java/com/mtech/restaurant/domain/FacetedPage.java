@@ -0,0 +1,29 @@
+package com.mtech.restaurant.domain;
+
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+// A regular page that also carries facet counts, serialized as an extra "facets" property
+public class FacetedPage<T, F> extends PageImpl<T> {
+    private final F facets;
+
+    public FacetedPage(List<T> content, Pageable pageable, long total, F facets) {
+        super(content, pageable, total);
+        this.facets = facets;
+    }
+
+    public F getFacets() {
+        return facets;
+    }
+
+    @Override
+    public <U> FacetedPage<U, F> map(Function<? super T, ? extends U> converter) {
+        return new FacetedPage<>(getConvertedContent(converter), getPageable(), getTotalElements(), facets);
+    }
+
+    public <G> FacetedPage<T, G> mapFacets(Function<? super F, ? extends G> converter) {
+        return new FacetedPage<>(getContent(), getPageable(), getTotalElements(), converter.apply(facets));
+    }
+}
@@ -0,0 +1,89 @@
+package com.mtech.restaurant.domain;
+
+import com.mtech.restaurant.domain.entities.MinuteRange;
+import com.mtech.restaurant.domain.entities.OperatingHours;
+import com.mtech.restaurant.domain.entities.TimeRange;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Weekly opening hours as minute-of-week ranges, counted from Monday 00:00. Hours that run past
+ * midnight continue into the next day, and Sunday night hours that run into Monday are split at
+ * the end of the week, so every opening minute falls in exactly one range of 0 to 10080.
+ */
+public final class OpeningIntervals {
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    private OpeningIntervals() {}
+
+    public static List<MinuteRange> of(OperatingHours operatingHours) {
+        List<MinuteRange> intervals = new ArrayList<>();
+        if (operatingHours == null) {
+            return intervals;
+        }
+        add(intervals, DayOfWeek.MONDAY, operatingHours.getMonday());
+        add(intervals, DayOfWeek.TUESDAY, operatingHours.getTuesday());
+        add(intervals, DayOfWeek.WEDNESDAY, operatingHours.getWednesday());
+        add(intervals, DayOfWeek.THURSDAY, operatingHours.getThursday());
+        add(intervals, DayOfWeek.FRIDAY, operatingHours.getFriday());
+        add(intervals, DayOfWeek.SATURDAY, operatingHours.getSaturday());
+        add(intervals, DayOfWeek.SUNDAY, operatingHours.getSunday());
+        return intervals;
+    }
+
+    // Same local wall-clock convention as the stored hours
+    public static int minuteOfWeek(LocalDateTime dateTime) {
+        return dayStart(dateTime.getDayOfWeek()) + dateTime.getHour() * 60 + dateTime.getMinute();
+    }
+
+    private static void add(List<MinuteRange> intervals, DayOfWeek day, TimeRange timeRange) {
+        if (timeRange == null) {
+            return;
+        }
+        Integer open = parseMinuteOfDay(timeRange.getOpenTime());
+        Integer close = parseMinuteOfDay(timeRange.getCloseTime());
+        if (open == null || close == null) {
+            return;
+        }
+        // A close at or before the open means the day ends after midnight; equal times mean 24 hours
+        if (close <= open) {
+            close += MINUTES_PER_DAY;
+        }
+        int start = dayStart(day) + open;
+        int end = dayStart(day) + close;
+        if (end <= MINUTES_PER_WEEK) {
+            intervals.add(new MinuteRange(start, end));
+        } else {
+            intervals.add(new MinuteRange(start, MINUTES_PER_WEEK));
+            intervals.add(new MinuteRange(0, end - MINUTES_PER_WEEK));
+        }
+    }
+
+    private static int dayStart(DayOfWeek day) {
+        return (day.getValue() - 1) * MINUTES_PER_DAY;
+    }
+
+    // "H:mm" or "HH:mm", as accepted by TimeRangeDto; anything else is left out of the index
+    private static Integer parseMinuteOfDay(String time) {
+        if (time == null) {
+            return null;
+        }
+        String[] parts = time.trim().split(":");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            int hours = Integer.parseInt(parts[0]);
+            int minutes = Integer.parseInt(parts[1]);
+            if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59) {
+                return null;
+            }
+            return hours * 60 + minutes;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.mtech.restaurant.domain;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.util.StringUtils;
+
+@Getter
+@RequiredArgsConstructor
+public enum PhotoSize {
+    SMALL(320),
+    MEDIUM(800);
+
+    // Maximum width in pixels; variants are never upscaled
+    private final int width;
+
+    // Unknown sizes resolve to empty so callers fall back to the original
+    public static Optional<PhotoSize> fromParameter(String size) {
+        if (!StringUtils.hasText(size)) {
+            return Optional.empty();
+        }
+        return Arrays.stream(values())
+                .filter(candidate -> candidate.name().equalsIgnoreCase(size.trim()))
+                .findFirst();
+    }
+
+    // File name of this variant of a stored photo, e.g. abc.jpg -> abc-small.jpg
+    public String variantOf(String filename) {
+        String extension = StringUtils.getFilenameExtension(filename);
+        String base = StringUtils.stripFilenameExtension(filename);
+        String suffix = "-" + name().toLowerCase(Locale.ROOT);
+        return extension == null ? base + suffix : base + suffix + "." + extension;
+    }
+}
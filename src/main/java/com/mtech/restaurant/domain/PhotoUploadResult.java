@@ -0,0 +1,18 @@
+package com.mtech.restaurant.domain;
+
+import com.mtech.restaurant.domain.entities.Photo;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhotoUploadResult {
+    private String filename; // Original name of the uploaded file
+    private boolean success;
+    private Photo photo; // Set when the file was stored
+    private String error; // Set when it wasn't
+}
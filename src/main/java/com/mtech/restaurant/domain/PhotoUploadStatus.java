@@ -0,0 +1,21 @@
+package com.mtech.restaurant.domain;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhotoUploadStatus {
+    private String uploadId;
+    private String filename;
+    private long size;
+    private long receivedBytes;
+    private List<ByteRange> receivedRanges; // Merged, in offset order
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,50 @@
+package com.mtech.restaurant.domain;
+
+import com.mtech.restaurant.domain.entities.Restaurant;
+import lombok.Value;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+
+// Published after a restaurant is saved, rated or deleted, for in-process indexes that mirror restaurants
+@Value
+public class RestaurantChangedEvent {
+    public static final long UNKNOWN_SEQUENCE_NUMBER = -1;
+
+    String restaurantId;
+    Restaurant restaurant; // The saved state, null when the restaurant was deleted or only rated
+    RestaurantRating rating; // The new rating after a review write, null otherwise
+    // The document's _seq_no after the write. Writes publish from request threads, so listeners use
+    // it to skip a change that arrives after a newer one
+    long sequenceNumber;
+
+    public static RestaurantChangedEvent saved(Restaurant restaurant) {
+        SeqNoPrimaryTerm version = restaurant.getSeqNoPrimaryTerm();
+        return new RestaurantChangedEvent(
+                restaurant.getId(),
+                restaurant,
+                null,
+                version != null ? version.sequenceNumber() : UNKNOWN_SEQUENCE_NUMBER);
+    }
+
+    public static RestaurantChangedEvent rated(String restaurantId, RestaurantRating rating) {
+        return new RestaurantChangedEvent(restaurantId, null, rating, rating.getSequenceNumber());
+    }
+
+    public static RestaurantChangedEvent deleted(String restaurantId) {
+        return new RestaurantChangedEvent(restaurantId, null, null, UNKNOWN_SEQUENCE_NUMBER);
+    }
+
+    public boolean isDeleted() {
+        return restaurant == null && rating == null;
+    }
+
+    public boolean isRated() {
+        return rating != null;
+    }
+
+    // False for a change older than one already applied; changes without a sequence number always apply
+    public boolean supersedes(long appliedSequenceNumber) {
+        return sequenceNumber == UNKNOWN_SEQUENCE_NUMBER
+                || appliedSequenceNumber == UNKNOWN_SEQUENCE_NUMBER
+                || sequenceNumber > appliedSequenceNumber;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mtech.restaurant.domain;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantFacets {
+    private List<FacetBucket> cuisines;
+    private List<FacetBucket> ratings;
+    private List<FacetBucket> distances; // Empty unless the search has a location
+}
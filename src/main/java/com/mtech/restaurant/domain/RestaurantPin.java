@@ -0,0 +1,21 @@
+package com.mtech.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// A restaurant as placed on a map
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantPin {
+    private String id;
+    private String name;
+    private String cuisineType;
+    private Float averageRating;
+    private double latitude;
+    private double longitude;
+    private Double distanceKm; // Only set for radius searches
+}
@@ -0,0 +1,11 @@
+package com.mtech.restaurant.domain;
+
+import lombok.Value;
+
+// A restaurant's rating as left by a review write, with the document's _seq_no after that write
+@Value
+public class RestaurantRating {
+    float averageRating;
+    int totalReviews;
+    long sequenceNumber;
+}
@@ -0,0 +1,62 @@
+package com.mtech.restaurant.domain;
+
+import java.time.LocalDateTime;
+import java.util.Locale;
+import lombok.Value;
+
+/**
+ * Normalized search parameters, used both as the search cache key and as the parameters
+ * actually sent to Elasticsearch so that a cached page always matches its key.
+ */
+@Value
+public class RestaurantSearchKey {
+    // Roughly 100m of latitude, well inside any useful search radius
+    private static final double COORDINATE_SCALE = 1_000d;
+
+    String query;
+    Float minRating;
+    Float latitude;
+    Float longitude;
+    Float radius;
+    Integer openAtMinute;
+    int page;
+    int size;
+    String sort;
+    boolean facets;
+
+    public static RestaurantSearchKey of(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            LocalDateTime openAt,
+            int page,
+            int size,
+            String sort,
+            boolean facets) {
+        return new RestaurantSearchKey(
+                normalizeQuery(query),
+                // Filter values stay exact, rounding them would change which restaurants match
+                minRating,
+                round(latitude, COORDINATE_SCALE),
+                round(longitude, COORDINATE_SCALE),
+                radius,
+                openAt == null ? null : OpeningIntervals.minuteOfWeek(openAt),
+                page,
+                size,
+                sort,
+                facets);
+    }
+
+    private static String normalizeQuery(String query) {
+        if (query == null || query.isBlank()) {
+            return null;
+        }
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static Float round(Float value, double scale) {
+        return value == null ? null : (float) (Math.round(value * scale) / scale);
+    }
+}
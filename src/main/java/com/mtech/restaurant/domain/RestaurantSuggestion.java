@@ -0,0 +1,16 @@
+package com.mtech.restaurant.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantSuggestion {
+    private String id;
+    private String name;
+    private String cuisineType;
+}
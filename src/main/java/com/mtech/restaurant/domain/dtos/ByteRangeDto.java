@@ -0,0 +1,15 @@
+package com.mtech.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ByteRangeDto {
+    private long start;
+    private long end;
+}
@@ -0,0 +1,17 @@
+package com.mtech.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FacetBucketDto {
+    private String key;
+    private Double from;
+    private Double to;
+    private long count;
+}
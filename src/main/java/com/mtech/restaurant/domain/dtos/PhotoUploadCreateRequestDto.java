@@ -0,0 +1,19 @@
+package com.mtech.restaurant.domain.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PhotoUploadCreateRequestDto {
+    @NotBlank(message = "Filename is required") private String filename;
+
+    @NotNull(message = "Size is required") @Positive(message = "Size must be positive") private Long size;
+}
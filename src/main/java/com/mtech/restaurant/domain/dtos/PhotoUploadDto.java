@@ -0,0 +1,21 @@
+package com.mtech.restaurant.domain.dtos;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhotoUploadDto {
+    private String uploadId;
+    private String filename;
+    private long size;
+    private long receivedBytes;
+    private List<ByteRangeDto> receivedRanges;
+    private LocalDateTime expiresAt;
+}
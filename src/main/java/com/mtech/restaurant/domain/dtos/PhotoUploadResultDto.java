@@ -0,0 +1,17 @@
+package com.mtech.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PhotoUploadResultDto {
+    private String filename;
+    private boolean success;
+    private PhotoDto photo;
+    private String error;
+}
@@ -21,7 +21,6 @@ public class RestaurantDto {
     private AddressDto address;
     private OperatingHoursDto operatingHours;
     private List<PhotoDto> photos = new ArrayList<>();
-    private List<ReviewDto> reviews = new ArrayList<>();
     private UserDto createdBy;
     private Integer totalReviews;
 }
@@ -0,0 +1,17 @@
+package com.mtech.restaurant.domain.dtos;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantFacetsDto {
+    private List<FacetBucketDto> cuisines;
+    private List<FacetBucketDto> ratings;
+    private List<FacetBucketDto> distances;
+}
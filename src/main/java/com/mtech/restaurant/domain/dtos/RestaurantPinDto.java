@@ -0,0 +1,20 @@
+package com.mtech.restaurant.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RestaurantPinDto {
+    private String id;
+    private String name;
+    private String cuisineType;
+    private Float averageRating;
+    private double latitude;
+    private double longitude;
+    private Double distanceKm;
+}
@@ -0,0 +1,28 @@
+package com.mtech.restaurant.domain.entities;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.elasticsearch.annotations.Document;
+import org.springframework.data.elasticsearch.annotations.Field;
+import org.springframework.data.elasticsearch.annotations.FieldType;
+
+/**
+ * Read-only view of restaurant documents written before reviews moved to their own index.
+ * Only used to migrate the nested reviews out of the restaurants index.
+ */
+@Document(indexName = "restaurants", createIndex = false)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class LegacyRestaurantReviews {
+
+    @Id
+    private String id;
+
+    @Field(type = FieldType.Nested)
+    private List<Review> reviews = new ArrayList<>();
+}
@@ -0,0 +1,16 @@
+package com.mtech.restaurant.domain.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Stored in an integer_range field, so the property names are the range bounds Elasticsearch expects
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class MinuteRange {
+    private Integer gte;
+    private Integer lt;
+}
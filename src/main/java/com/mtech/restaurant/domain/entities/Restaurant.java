@@ -11,7 +11,10 @@ import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.GeoPointField;
+import org.springframework.data.elasticsearch.annotations.InnerField;
+import org.springframework.data.elasticsearch.annotations.MultiField;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 
 @Document(indexName = "restaurants")
 @Data
@@ -26,7 +29,10 @@ public class Restaurant {
     @Field(type = FieldType.Text)
     private String name;
 
-    @Field(type = FieldType.Text)
+    // The keyword sub-field backs the cuisine facet
+    @MultiField(
+            mainField = @Field(type = FieldType.Text),
+            otherFields = {@InnerField(suffix = "keyword", type = FieldType.Keyword)})
     private String cuisineType;
 
     @Field(type = FieldType.Keyword)
@@ -44,12 +50,24 @@ public class Restaurant {
     @Field(type = FieldType.Nested)
     private OperatingHours operatingHours;
 
+    // Derived from operatingHours on every write, see OpeningIntervals; backfilled by OpeningIntervalsBackfill
+    @Field(type = FieldType.Integer_Range)
+    private List<MinuteRange> openingIntervals;
+
     @Field(type = FieldType.Nested)
     private List<Photo> photos = new ArrayList<>();
 
-    @Field(type = FieldType.Nested)
-    private List<Review> reviews = new ArrayList<>();
+    // Long, as the review counter scripts first wrote it dynamically on existing indexes
+    @Field(type = FieldType.Long)
+    private Integer totalReviews;
+
+    // Running sum of all review ratings, kept so the average can be adjusted by delta
+    @Field(type = FieldType.Long)
+    private Long ratingSum;
 
     @Field(type = FieldType.Nested)
     private User createdBy;
+
+    // Populated on reads; makes saves conditional on the version that was read
+    private SeqNoPrimaryTerm seqNoPrimaryTerm;
 }
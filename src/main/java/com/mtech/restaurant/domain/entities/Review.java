@@ -7,19 +7,27 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
 import org.springframework.data.elasticsearch.annotations.DateFormat;
+import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
 
+@Document(indexName = "reviews")
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Review {
 
+    @Id
     @Field(type = FieldType.Keyword)
     private String id;
 
+    @Field(type = FieldType.Keyword)
+    private String restaurantId;
+
     @Field(type = FieldType.Text)
     private String content;
 
@@ -35,6 +43,9 @@ public class Review {
     @Field(type = FieldType.Nested)
     private List<Photo> photos = new ArrayList<>();
 
-    @Field(type = FieldType.Nested)
+    @Field(type = FieldType.Object)
     private User writtenBy;
+
+    // Populated on reads; makes saves conditional on the version that was read
+    private SeqNoPrimaryTerm seqNoPrimaryTerm;
 }
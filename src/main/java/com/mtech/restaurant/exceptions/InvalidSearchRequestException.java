@@ -0,0 +1,19 @@
+package com.mtech.restaurant.exceptions;
+
+public class InvalidSearchRequestException extends BaseException {
+    public InvalidSearchRequestException() {
+        super();
+    }
+
+    public InvalidSearchRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidSearchRequestException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mtech.restaurant.exceptions;
+
+public class InvalidUploadException extends BaseException {
+    public InvalidUploadException() {
+        super();
+    }
+
+    public InvalidUploadException(String message) {
+        super(message);
+    }
+
+    public InvalidUploadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public InvalidUploadException(Throwable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,19 @@
+package com.mtech.restaurant.exceptions;
+
+public class UploadSessionNotFoundException extends BaseException {
+    public UploadSessionNotFoundException() {
+        super();
+    }
+
+    public UploadSessionNotFoundException(String message) {
+        super(message);
+    }
+
+    public UploadSessionNotFoundException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UploadSessionNotFoundException(Throwable cause) {
+        super(cause);
+    }
+}
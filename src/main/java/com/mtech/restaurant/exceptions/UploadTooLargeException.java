@@ -0,0 +1,19 @@
+package com.mtech.restaurant.exceptions;
+
+public class UploadTooLargeException extends BaseException {
+    public UploadTooLargeException() {
+        super();
+    }
+
+    public UploadTooLargeException(String message) {
+        super(message);
+    }
+
+    public UploadTooLargeException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UploadTooLargeException(Throwable cause) {
+        super(cause);
+    }
+}
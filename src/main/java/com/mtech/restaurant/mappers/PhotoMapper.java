@@ -1,6 +1,10 @@
 package com.mtech.restaurant.mappers;
 
+import com.mtech.restaurant.domain.PhotoUploadResult;
+import com.mtech.restaurant.domain.PhotoUploadStatus;
 import com.mtech.restaurant.domain.dtos.PhotoDto;
+import com.mtech.restaurant.domain.dtos.PhotoUploadDto;
+import com.mtech.restaurant.domain.dtos.PhotoUploadResultDto;
 import com.mtech.restaurant.domain.entities.Photo;
 import org.mapstruct.Mapper;
 import org.mapstruct.ReportingPolicy;
@@ -8,4 +12,8 @@ import org.mapstruct.ReportingPolicy;
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface PhotoMapper {
     PhotoDto toDto(Photo photo);
+
+    PhotoUploadDto toDto(PhotoUploadStatus status);
+
+    PhotoUploadResultDto toDto(PhotoUploadResult result);
 }
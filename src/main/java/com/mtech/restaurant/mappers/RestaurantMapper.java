@@ -1,14 +1,15 @@
 package com.mtech.restaurant.mappers;
 
+import com.mtech.restaurant.domain.FacetBucket;
 import com.mtech.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.mtech.restaurant.domain.RestaurantFacets;
+import com.mtech.restaurant.domain.RestaurantPin;
+import com.mtech.restaurant.domain.RestaurantSuggestion;
 import com.mtech.restaurant.domain.dtos.*;
 import com.mtech.restaurant.domain.entities.Address;
 import com.mtech.restaurant.domain.entities.Restaurant;
-import com.mtech.restaurant.domain.entities.Review;
-import java.util.List;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
-import org.mapstruct.Named;
 import org.mapstruct.ReportingPolicy;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 
@@ -16,7 +17,7 @@ import org.springframework.data.elasticsearch.core.geo.GeoPoint;
 public interface RestaurantMapper {
     RestaurantCreateUpdateRequest toRestaurantCreateUpdateRequest(RestaurantCreateUpdateRequestDto dto);
 
-    @Mapping(source = "reviews", target = "totalReviews", qualifiedByName = "populateTotalReviews")
+    @Mapping(source = "totalReviews", target = "totalReviews", defaultValue = "0")
     RestaurantDto toRestaurantDto(Restaurant restaurant);
 
     AddressDto toAddressDto(Address address);
@@ -25,11 +26,14 @@ public interface RestaurantMapper {
     @Mapping(target = "longitude", expression = "java(geoPoint.getLon())")
     GeoPointDto toGeoPointDto(GeoPoint geoPoint);
 
-    @Mapping(source = "reviews", target = "totalReviews", qualifiedByName = "populateTotalReviews")
+    @Mapping(source = "totalReviews", target = "totalReviews", defaultValue = "0")
     RestaurantSummaryDto toSummaryDto(Restaurant restaurant);
 
-    @Named("populateTotalReviews")
-    default Integer populateTotalReviews(List<Review> reviews) {
-        return reviews != null ? reviews.size() : 0;
-    }
+    RestaurantPinDto toPinDto(RestaurantPin pin);
+
+    RestaurantSuggestionDto toSuggestionDto(RestaurantSuggestion suggestion);
+
+    RestaurantFacetsDto toFacetsDto(RestaurantFacets facets);
+
+    FacetBucketDto toFacetBucketDto(FacetBucket bucket);
 }
@@ -0,0 +1,13 @@
+package com.mtech.restaurant.repositories;
+
+import com.mtech.restaurant.domain.RestaurantRating;
+import java.util.Optional;
+
+public interface RestaurantRatingRepository {
+    // Adjust the running rating sum and review count, recomputing averageRating in place, and return
+    // the rating the update left; empty when the restaurant no longer exists.
+    // This is a separate write from the review itself: if the process stops between the two, the
+    // totals stay off by that review. Nothing corrects this automatically; the reviews index is the
+    // source of truth to recompute them from.
+    Optional<RestaurantRating> applyRatingDelta(String restaurantId, int ratingDelta, int reviewCountDelta);
+}
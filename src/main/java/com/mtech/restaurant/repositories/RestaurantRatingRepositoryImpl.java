@@ -0,0 +1,69 @@
+package com.mtech.restaurant.repositories;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch.core.UpdateResponse;
+import co.elastic.clients.json.JsonData;
+import com.mtech.restaurant.domain.RestaurantRating;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+
+@RequiredArgsConstructor
+public class RestaurantRatingRepositoryImpl implements RestaurantRatingRepository {
+    private static final int NOT_FOUND = 404;
+
+    // Documents written before the running sum existed are seeded from their stored average
+    private static final String RATING_DELTA_SCRIPT =
+            "if (ctx._source.totalReviews == null) { ctx._source.totalReviews = 0 }"
+                    + " if (ctx._source.ratingSum == null) {"
+                    + " def average = ctx._source.averageRating == null ? 0 : ctx._source.averageRating;"
+                    + " ctx._source.ratingSum = Math.round(average * ctx._source.totalReviews) }"
+                    + " ctx._source.ratingSum += params.ratingDelta;"
+                    + " ctx._source.totalReviews += params.reviewCountDelta;"
+                    + " ctx._source.averageRating = ctx._source.totalReviews > 0"
+                    + " ? (float) ctx._source.ratingSum / ctx._source.totalReviews : 0f;";
+
+    // Lets Elasticsearch re-run the script when another writer updated the document in between
+    private static final int RETRY_ON_CONFLICT = 5;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+
+    // The updated fields come back in the update response, so nothing has to read the restaurant again
+    private record RatingSource(Float averageRating, Integer totalReviews) {}
+
+    @Override
+    public Optional<RestaurantRating> applyRatingDelta(String restaurantId, int ratingDelta, int reviewCountDelta) {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class).getIndexName();
+        Map<String, JsonData> params =
+                Map.of("ratingDelta", JsonData.of(ratingDelta), "reviewCountDelta", JsonData.of(reviewCountDelta));
+        try {
+            UpdateResponse<RatingSource> response = elasticsearchClient.update(
+                    u -> u.index(indexName)
+                            .id(restaurantId)
+                            .script(s -> s.inline(i -> i.source(RATING_DELTA_SCRIPT)
+                                    .lang("painless")
+                                    .params(params)))
+                            .retryOnConflict(RETRY_ON_CONFLICT)
+                            .source(c -> c.filter(f -> f.includes("averageRating", "totalReviews"))),
+                    RatingSource.class);
+            RatingSource source = response.get().source();
+            return Optional.of(new RestaurantRating(
+                    source.averageRating() == null ? 0f : source.averageRating(),
+                    source.totalReviews() == null ? 0 : source.totalReviews(),
+                    response.seqNo()));
+        } catch (ElasticsearchException e) {
+            if (e.status() == NOT_FOUND) {
+                return Optional.empty();
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to update rating of restaurant " + restaurantId, e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.mtech.restaurant.repositories;
+
+import com.mtech.restaurant.domain.entities.Review;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.elasticsearch.repository.ElasticsearchRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReviewRepository extends ElasticsearchRepository<Review, String>, ReviewWriteRepository {
+    // A sorted page of a restaurant's reviews, with the total count
+    Page<Review> findByRestaurantId(String restaurantId, Pageable pageable);
+
+    // Used to enforce one review per user per restaurant
+    boolean existsByRestaurantIdAndWrittenById(String restaurantId, String userId);
+
+    // Streamed with a scroll, so restaurants with many reviews are not loaded at once
+    Stream<Review> findAllByRestaurantId(String restaurantId);
+
+    void deleteByRestaurantId(String restaurantId);
+}
@@ -0,0 +1,12 @@
+package com.mtech.restaurant.repositories;
+
+import com.mtech.restaurant.domain.entities.Review;
+
+// Writes whose outcome decides whether the restaurant's rating totals change
+public interface ReviewWriteRepository {
+    // Indexes the review only if no document with its id exists; false when one already does
+    boolean createIfAbsent(Review review);
+
+    // Deletes the review only if it is unchanged since it was read; false when nothing was removed
+    boolean deleteIfUnchanged(Review review);
+}
@@ -0,0 +1,67 @@
+package com.mtech.restaurant.repositories;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
+import co.elastic.clients.elasticsearch._types.Result;
+import co.elastic.clients.elasticsearch.core.DeleteRequest;
+import com.mtech.restaurant.domain.entities.Review;
+import java.io.IOException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.elasticsearch.core.query.SeqNoPrimaryTerm;
+
+@RequiredArgsConstructor
+public class ReviewWriteRepositoryImpl implements ReviewWriteRepository {
+    private static final int CONFLICT = 409;
+    private static final int NOT_FOUND = 404;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ElasticsearchClient elasticsearchClient;
+
+    @Override
+    public boolean createIfAbsent(Review review) {
+        IndexQuery indexQuery = new IndexQueryBuilder()
+                .withId(review.getId())
+                .withObject(review)
+                .withOpType(IndexQuery.OpType.CREATE)
+                .build();
+        try {
+            elasticsearchOperations.index(indexQuery, elasticsearchOperations.getIndexCoordinatesFor(Review.class));
+            return true;
+        } catch (OptimisticLockingFailureException e) {
+            // Elasticsearch reports an existing document as a version conflict
+            return false;
+        }
+    }
+
+    @Override
+    public boolean deleteIfUnchanged(Review review) {
+        String indexName = elasticsearchOperations.getIndexCoordinatesFor(Review.class).getIndexName();
+        SeqNoPrimaryTerm version = review.getSeqNoPrimaryTerm();
+        DeleteRequest request = DeleteRequest.of(d -> {
+            d.index(indexName).id(review.getId());
+            if (version != null) {
+                d.ifSeqNo(version.sequenceNumber()).ifPrimaryTerm(version.primaryTerm());
+            }
+            return d;
+        });
+        try {
+            return elasticsearchClient.delete(request).result() == Result.Deleted;
+        } catch (ElasticsearchException e) {
+            if (e.status() == NOT_FOUND) {
+                return false;
+            }
+            if (e.status() == CONFLICT) {
+                throw new OptimisticLockingFailureException(
+                        "Review " + review.getId() + " changed since it was read", e);
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new DataAccessResourceFailureException("Failed to delete review " + review.getId(), e);
+        }
+    }
+}
@@ -1,6 +1,11 @@
 package com.mtech.restaurant.services;
 
+import com.mtech.restaurant.domain.PhotoSize;
+import com.mtech.restaurant.domain.PhotoUploadResult;
 import com.mtech.restaurant.domain.entities.Photo;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
@@ -8,5 +13,20 @@ import org.springframework.web.multipart.MultipartFile;
 public interface PhotoService {
     Photo uploadPhoto(MultipartFile file);
 
+    // Store several files concurrently; one result per file, in request order
+    List<PhotoUploadResult> uploadPhotos(List<MultipartFile> files);
+
+    // Upload from a raw image request body; the format is detected from the content
+    Photo uploadPhoto(InputStream body, long contentLength);
+
     Optional<Resource> getPhotoAsResource(String id);
+
+    // Take a reference for each photo an entity now holds
+    void retainPhotos(Collection<Photo> photos);
+
+    // Drop the references an entity held on its photos; files and their variants go once unreferenced
+    void releasePhotos(Collection<Photo> photos);
+
+    // Empty while the variant is still being generated
+    Optional<Resource> getPhotoVariantAsResource(String id, PhotoSize size);
 }
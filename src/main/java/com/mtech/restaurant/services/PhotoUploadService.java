@@ -0,0 +1,18 @@
+package com.mtech.restaurant.services;
+
+import com.mtech.restaurant.domain.PhotoUploadStatus;
+import com.mtech.restaurant.domain.entities.Photo;
+import java.io.InputStream;
+
+// Resumable uploads: chunks may arrive in any order and be retried until the whole file is present
+public interface PhotoUploadService {
+    PhotoUploadStatus createUpload(String ownerId, String filename, long size);
+
+    PhotoUploadStatus writeChunk(String ownerId, String uploadId, long offset, InputStream chunk);
+
+    PhotoUploadStatus getUpload(String ownerId, String uploadId);
+
+    Photo completeUpload(String ownerId, String uploadId);
+
+    void abortUpload(String ownerId, String uploadId);
+}
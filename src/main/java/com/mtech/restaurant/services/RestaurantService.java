@@ -1,21 +1,67 @@
 package com.mtech.restaurant.services;
 
+import com.mtech.restaurant.domain.CursorPage;
+import com.mtech.restaurant.domain.FacetedPage;
 import com.mtech.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.mtech.restaurant.domain.RestaurantFacets;
+import com.mtech.restaurant.domain.RestaurantPin;
+import com.mtech.restaurant.domain.RestaurantSuggestion;
 import com.mtech.restaurant.domain.entities.Restaurant;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface RestaurantService {
 
     Restaurant createRestaurant(RestaurantCreateUpdateRequest request);
 
+    // Results only carry the fields needed for a summary view. openAtMinute is a minute of the week
+    // (see OpeningIntervals) and keeps only restaurants open at that time
     Page<Restaurant> searchRestaurants(
-            String query, Float minRating, Float latitude, Float longitude, Float radius, Pageable pageable);
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Pageable pageable);
+
+    // Same search, plus cuisine, rating and (with a location) distance facets from the same request
+    FacetedPage<Restaurant, RestaurantFacets> searchRestaurantsWithFacets(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Pageable pageable);
+
+    // Keyset variant of searchRestaurants; pass the previous page's nextCursor to continue
+    CursorPage<Restaurant> scrollRestaurants(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Sort sort,
+            String cursor,
+            int size);
 
     Optional<Restaurant> getRestaurant(String id);
     // New update method
     Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest restaurant);
 
     void deleteRestaurant(String id);
+
+    // Map queries, served from the in-memory geo grid when it is warm
+    List<RestaurantPin> findNearby(float latitude, float longitude, float radius, Float minRating, int limit);
+
+    List<RestaurantPin> findWithin(
+            float minLatitude, float minLongitude, float maxLatitude, float maxLongitude, Float minRating, int limit);
+
+    // Typeahead over name and cuisine words, served from the in-memory suggest index when it is warm
+    List<RestaurantSuggestion> suggestRestaurants(String prefix, int limit);
 }
@@ -1,5 +1,7 @@
 package com.mtech.restaurant.services;
 
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.Optional;
 import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
@@ -8,6 +10,25 @@ public interface StorageService {
     // Store a file and return its unique identifier
     String store(MultipartFile file, String filename);
 
+    // Stream raw upload content straight into storage, up to maxBytes, and return its unique identifier
+    String store(InputStream inputStream, String extension, String filename, long maxBytes);
+
+    // Move a fully received file into storage and return its unique identifier
+    String storeFile(Path source, String extension, String filename);
+
+    // Store generated content under an exact filename, replacing any previous file
+    void store(InputStream inputStream, String filename);
+
+    // Count a reference an entity takes on a stored file; only content-addressed storage counts them
+    boolean retain(String filename);
+
+    // Drop a reference taken with retain, deleting the file once none is left; true once it is gone.
+    // Files without counted references, including every file outside content-addressed storage, stay
+    boolean release(String filename);
+
+    // Delete a file stored under an exact filename, such as generated content
+    void delete(String filename);
+
     // Retrieve a file by its identifier
     Optional<Resource> loadAsResource(String filename);
 }
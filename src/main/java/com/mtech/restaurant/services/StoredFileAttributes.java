@@ -0,0 +1,12 @@
+package com.mtech.restaurant.services;
+
+import java.util.Optional;
+import org.springframework.http.MediaType;
+
+// Response headers a stored file resource already knows, so serving it derives nothing per request
+public interface StoredFileAttributes {
+    MediaType getContentType();
+
+    // Base64 SHA-256 of the content; empty for files stored without passing through a digest
+    Optional<String> getDigest();
+}
@@ -0,0 +1,137 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.exceptions.StorageException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reference counts for content-addressed blobs, persisted as one small file per blob under
+ * {@code .refs}. A reference is an entity that holds the blob as one of its photos; uploads
+ * alone don't count, so a blob nothing was ever attached to is kept. The count file is the
+ * only state. Changes to a blob's count and the blob file
+ * itself are serialized on a lock stripe picked by the blob name, which makes the counts safe
+ * within one application instance without holding any per-blob state in memory.
+ */
+final class BlobReferenceCounts {
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path blobDirectory;
+    private final Path refsDirectory;
+    private final StorageLayout layout;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    BlobReferenceCounts(Path blobDirectory, StorageLayout layout) {
+        this.blobDirectory = blobDirectory;
+        this.refsDirectory = blobDirectory.resolve(".refs");
+        this.layout = layout;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(refsDirectory);
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize blob reference counts", e);
+        }
+    }
+
+    // The candidate becomes the blob's content if the blob isn't stored yet
+    void store(String blobName, Path candidate) {
+        synchronized (lockFor(blobName)) {
+            try {
+                Path blob = layout.locate(blobDirectory, blobName);
+                if (Files.exists(blob)) {
+                    // Duplicate content, keep the existing blob
+                    Files.deleteIfExists(candidate);
+                } else {
+                    Files.createDirectories(blob.getParent());
+                    Files.move(candidate, blob, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException e) {
+                throw new StorageException("Failed to store blob " + blobName, e);
+            }
+        }
+    }
+
+    // Adds a reference; false when there is no such blob to reference
+    boolean retain(String blobName) {
+        synchronized (lockFor(blobName)) {
+            try {
+                if (!Files.exists(layout.locate(blobDirectory, blobName))) {
+                    return false;
+                }
+                writeCount(blobName, readCount(blobName) + 1);
+                return true;
+            } catch (IOException e) {
+                throw new StorageException("Failed to reference blob " + blobName, e);
+            }
+        }
+    }
+
+    // Drops a reference and deletes the blob once the last one is gone; true if it was deleted.
+    // A blob without counted references is left alone, whatever still points at it
+    boolean release(String blobName) {
+        synchronized (lockFor(blobName)) {
+            try {
+                int count = readCount(blobName);
+                if (count <= 0) {
+                    return false;
+                }
+                if (count > 1) {
+                    writeCount(blobName, count - 1);
+                    return false;
+                }
+                Files.deleteIfExists(layout.locate(blobDirectory, blobName));
+                Files.deleteIfExists(layout.locate(refsDirectory, blobName));
+                return true;
+            } catch (IOException e) {
+                throw new StorageException("Failed to release blob " + blobName, e);
+            }
+        }
+    }
+
+    // Moves a flat blob and its count into their shards, serialized with acquire and release
+    boolean migrate(String blobName) {
+        synchronized (lockFor(blobName)) {
+            try {
+                boolean moved = layout.moveToShard(blobDirectory, blobName);
+                layout.moveToShard(refsDirectory, blobName);
+                return moved;
+            } catch (IOException e) {
+                throw new StorageException("Failed to migrate blob " + blobName, e);
+            }
+        }
+    }
+
+    private Object lockFor(String blobName) {
+        return locks[Math.floorMod(blobName.hashCode(), locks.length)];
+    }
+
+    private int readCount(String blobName) throws IOException {
+        Path refFile = layout.locate(refsDirectory, blobName);
+        if (!Files.exists(refFile)) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(Files.readString(refFile, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new StorageException("Corrupt reference count for blob " + blobName, e);
+        }
+    }
+
+    private void writeCount(String blobName, int count) throws IOException {
+        // Replace atomically so a crash never leaves a half-written count
+        Path refFile = layout.resolve(refsDirectory, blobName);
+        Files.createDirectories(refFile.getParent());
+        Path tempFile = Files.createTempFile(refsDirectory, "." + blobName, ".tmp");
+        Files.writeString(tempFile, Integer.toString(count), StandardCharsets.US_ASCII);
+        Files.move(tempFile, refFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        // Drop a stale flat count the layout migration has not reached yet
+        Path flatRefFile = refsDirectory.resolve(blobName);
+        if (!flatRefFile.equals(refFile)) {
+            Files.deleteIfExists(flatRefFile);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.exceptions.UploadTooLargeException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.MessageDigest;
+
+/**
+ * Copies channels into file channels without allocating a heap buffer per copy. Bytes go
+ * through a direct buffer that is reused by each thread.
+ */
+final class ByteChannelCopier {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private ByteChannelCopier() {}
+
+    static long copy(ReadableByteChannel source, FileChannel target) throws IOException {
+        return copy(source, target, null);
+    }
+
+    // Same as copy, feeding every byte written into the digest on the way through
+    static long copy(ReadableByteChannel source, FileChannel target, MessageDigest digest) throws IOException {
+        return copy(source, target, digest, Long.MAX_VALUE);
+    }
+
+    // Same as copy with a digest, rejecting the stream once more than maxBytes arrive
+    static long copy(ReadableByteChannel source, FileChannel target, MessageDigest digest, long maxBytes)
+            throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        long copied = 0;
+        buffer.clear();
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            if (copied + buffer.remaining() > maxBytes) {
+                throw new UploadTooLargeException("Upload exceeds the allowed size of " + maxBytes + " bytes");
+            }
+            if (digest != null) {
+                digest.update(buffer.duplicate());
+            }
+            while (buffer.hasRemaining()) {
+                copied += target.write(buffer);
+            }
+            buffer.clear();
+        }
+        return copied;
+    }
+
+    // Writes the stream at an absolute file position, rejecting it once more than maxBytes arrive
+    static long copyAt(ReadableByteChannel source, FileChannel target, long position, long maxBytes)
+            throws IOException {
+        ByteBuffer buffer = BUFFERS.get();
+        long copied = 0;
+        buffer.clear();
+        while (source.read(buffer) != -1) {
+            buffer.flip();
+            if (copied + buffer.remaining() > maxBytes) {
+                throw new UploadTooLargeException("Upload exceeds the allowed size of " + maxBytes + " bytes");
+            }
+            while (buffer.hasRemaining()) {
+                // Positional writes leave the channel position alone, so chunks can land in any order
+                copied += target.write(buffer, position + copied);
+            }
+            buffer.clear();
+        }
+        return copied;
+    }
+}
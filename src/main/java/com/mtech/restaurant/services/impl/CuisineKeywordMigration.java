@@ -0,0 +1,63 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.entities.Restaurant;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.query.ByQueryResponse;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the cuisineType.keyword sub-field that the cuisine facet aggregates on to an index created
+ * before it existed, and re-indexes the restaurants written before then so their values are in it.
+ * Re-running only touches restaurants whose sub-field is still empty.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.restaurants.migrate-cuisine-keyword", havingValue = "true", matchIfMissing = true)
+public class CuisineKeywordMigration implements SmartInitializingSingleton {
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    public void migrate() {
+        try {
+            // A sub-field can be added to the existing text field in place
+            elasticsearchOperations
+                    .indexOps(Restaurant.class)
+                    .putMapping(Document.from(Map.of(
+                            "properties",
+                            Map.of(
+                                    "cuisineType",
+                                    Map.of("type", "text", "fields", Map.of("keyword", Map.of("type", "keyword")))))));
+        } catch (RuntimeException e) {
+            log.error("Could not map cuisineType.keyword, the cuisine facet will stay empty", e);
+            return;
+        }
+        // An update without a script re-indexes the stored source, which fills the new sub-field
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.must(m -> m.exists(e -> e.field("cuisineType")))
+                        .mustNot(mn -> mn.exists(e -> e.field("cuisineType.keyword")))))
+                .build();
+        UpdateQuery updateQuery = UpdateQuery.builder(query).withAbortOnVersionConflict(false).build();
+        try {
+            ByQueryResponse response = elasticsearchOperations.updateByQuery(
+                    updateQuery, elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+            if (response.getUpdated() > 0) {
+                log.info("Indexed cuisineType.keyword on {} restaurants", response.getUpdated());
+            }
+        } catch (RuntimeException e) {
+            log.error("Cuisine keyword backfill failed", e);
+        }
+    }
+}
@@ -2,19 +2,32 @@ package com.mtech.restaurant.services.impl;
 
 import com.mtech.restaurant.exceptions.StorageException;
 import com.mtech.restaurant.services.StorageService;
+import com.mtech.restaurant.services.StoredFileAttributes;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.Optional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -25,16 +38,48 @@ public class FileSystemStorageService implements StorageService {
     @Value("${app.storage.location:uploads}")
     private String storageLocation;
 
+    // Store files under their SHA-256 digest so identical uploads share one blob
+    @Value("${app.storage.content-addressed:false}")
+    private boolean contentAddressed;
+
+    // Fan files out into two levels of hex-prefix directories instead of one flat directory
+    @Value("${app.storage.sharded:true}")
+    private boolean sharded;
+
     private Path rootLocation;
 
+    private StorageLayout layout;
+
+    private BlobReferenceCounts referenceCounts;
+
+    // Answer lookups from memory once the startup scan has finished
+    @Value("${app.storage.index.enabled:true}")
+    private boolean indexEnabled;
+
+    @Value("${app.storage.index.scan-threads:4}")
+    private int indexScanThreads;
+
+    private final PhotoMetadataIndex metadataIndex = new PhotoMetadataIndex();
+
     @PostConstruct
     public void init() {
         rootLocation = Paths.get(storageLocation);
+        layout = new StorageLayout(sharded);
         try {
             Files.createDirectories(rootLocation);
         } catch (IOException e) {
             throw new StorageException("Could not initialize storage location", e);
         }
+        if (contentAddressed) {
+            referenceCounts = new BlobReferenceCounts(rootLocation, layout);
+        }
+        if (indexEnabled) {
+            // Stores are recorded while the scan runs, so the index is complete when it is ready
+            Thread.ofPlatform()
+                    .name("storage-index")
+                    .daemon()
+                    .start(() -> metadataIndex.build(rootLocation, indexScanThreads));
+        }
     }
 
     @Override
@@ -46,31 +91,215 @@ public class FileSystemStorageService implements StorageService {
             }
             // Create final filename with extension
             String extension = StringUtils.getFilenameExtension(file.getOriginalFilename());
+            if (contentAddressed) {
+                return storeContentAddressed(file, extension);
+            }
             String finalFilename = filename + "." + extension;
-            // Resolve and normalize the destination path
-            Path destinationFile = this.rootLocation
-                    .resolve(Paths.get(finalFilename))
-                    .normalize()
-                    .toAbsolutePath();
-            // Security check to prevent directory traversal
-            if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
-                throw new StorageException("Cannot store file outside current directory");
+            Path destinationFile = resolveDestination(finalFilename);
+            // Move or copy the file to the destination
+            writeFile(file, destinationFile);
+            // Renamed into place without being read, so there is no digest to record
+            return indexStored(finalFilename, null);
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public void store(InputStream inputStream, String filename) {
+        try {
+            Path destinationFile = resolveDestination(filename);
+            // Write beside the target and rename, so readers never see a partial file
+            Path tempFile = Files.createTempFile(rootLocation, ".upload-", ".tmp");
+            try {
+                MessageDigest digest = newDigest();
+                try (ReadableByteChannel source = Channels.newChannel(inputStream);
+                        FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                    ByteChannelCopier.copy(source, target, digest);
+                }
+                Files.move(
+                        tempFile, destinationFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                indexStored(filename, digest.digest());
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename, e);
+        }
+    }
+
+    private Path resolveDestination(String filename) throws IOException {
+        // Resolve and normalize the destination path
+        Path destinationFile =
+                this.rootLocation.resolve(Paths.get(filename)).normalize().toAbsolutePath();
+        // Security check to prevent directory traversal
+        if (!destinationFile.getParent().equals(this.rootLocation.toAbsolutePath())) {
+            throw new StorageException("Cannot store file outside current directory");
+        }
+        Path shardedFile = layout.resolve(rootLocation, filename).toAbsolutePath();
+        Files.createDirectories(shardedFile.getParent());
+        return shardedFile;
+    }
+
+    private void writeFile(MultipartFile file, Path destinationFile) throws IOException {
+        // Servlet parts already spooled to disk are renamed into place, other implementations copy
+        file.transferTo(destinationFile.toFile());
+    }
+
+    private String storeContentAddressed(MultipartFile file, String extension) throws IOException {
+        // Spool next to the blobs so the final rename stays on one file system
+        Path tempFile = Files.createTempFile(rootLocation, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = newDigest();
+            // Hash while streaming to disk instead of reading the upload twice
+            try (ReadableByteChannel source = Channels.newChannel(file.getInputStream());
+                    FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteChannelCopier.copy(source, target, digest);
+            }
+            return acquireBlob(tempFile, digest, extension);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private String acquireBlob(Path tempFile, MessageDigest digest, String extension) throws IOException {
+        byte[] sha256 = digest.digest();
+        String finalFilename = HexFormat.of().formatHex(sha256) + "." + extension;
+        // Either moves the temp file in as a new blob or drops it as a duplicate
+        referenceCounts.store(finalFilename, tempFile);
+        return indexStored(finalFilename, sha256);
+    }
+
+    // Records a freshly stored file so later lookups can skip the file system
+    private String indexStored(String filename, byte[] sha256) throws IOException {
+        if (indexEnabled) {
+            Path file = layout.locate(rootLocation, filename);
+            boolean legacyFlat = !file.equals(layout.resolve(rootLocation, filename));
+            metadataIndex.put(
+                    filename,
+                    PhotoMetadataIndex.entry(
+                            filename, Files.size(file), System.currentTimeMillis(), legacyFlat, sha256));
+        }
+        return filename;
+    }
+
+    @Override
+    public String store(InputStream inputStream, String extension, String filename, long maxBytes) {
+        try {
+            // Spool next to the destination so the final step is a rename, not a second copy
+            Path tempFile = Files.createTempFile(rootLocation, ".upload-", ".tmp");
+            try {
+                // Hashed in both modes; the digest is served with the photo
+                MessageDigest digest = newDigest();
+                try (ReadableByteChannel source = Channels.newChannel(inputStream);
+                        FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                    if (ByteChannelCopier.copy(source, target, digest, maxBytes) == 0) {
+                        throw new StorageException("Failed to store empty file");
+                    }
+                }
+                if (contentAddressed) {
+                    return acquireBlob(tempFile, digest, extension);
+                }
+                String finalFilename = filename + "." + extension;
+                Files.move(tempFile, resolveDestination(finalFilename), StandardCopyOption.ATOMIC_MOVE);
+                return indexStored(finalFilename, digest.digest());
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file", e);
+        }
+    }
+
+    @Override
+    public String storeFile(Path source, String extension, String filename) {
+        try {
+            if (!contentAddressed) {
+                String finalFilename = filename + "." + extension;
+                // A rename when the source is on the same file system
+                Files.move(source, resolveDestination(finalFilename), StandardCopyOption.REPLACE_EXISTING);
+                return indexStored(finalFilename, null);
             }
-            // Copy the file to the destination
-            try (InputStream inputStream = file.getInputStream()) {
-                Files.copy(inputStream, destinationFile, StandardCopyOption.REPLACE_EXISTING);
+            Path tempFile = Files.createTempFile(rootLocation, ".upload-", ".tmp");
+            try {
+                Files.move(source, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                MessageDigest digest = newDigest();
+                try (InputStream inputStream = new DigestInputStream(Files.newInputStream(tempFile), digest)) {
+                    inputStream.transferTo(OutputStream.nullOutputStream());
+                }
+                return acquireBlob(tempFile, digest, extension);
+            } finally {
+                Files.deleteIfExists(tempFile);
             }
-            return finalFilename;
         } catch (IOException e) {
             throw new StorageException("Failed to store file", e);
         }
     }
 
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Override
+    public boolean retain(String filename) {
+        checkStoredName(filename);
+        // Plain files are never deleted, so there is nothing to count
+        return contentAddressed && referenceCounts.retain(filename);
+    }
+
+    @Override
+    public boolean release(String filename) {
+        checkStoredName(filename);
+        // The blob is only deleted once its last reference is released
+        if (!contentAddressed || !referenceCounts.release(filename)) {
+            return false;
+        }
+        metadataIndex.remove(filename);
+        return true;
+    }
+
+    @Override
+    public void delete(String filename) {
+        checkStoredName(filename);
+        try {
+            metadataIndex.remove(filename);
+            Files.deleteIfExists(layout.locate(rootLocation, filename));
+        } catch (IOException e) {
+            throw new StorageException("Failed to delete file " + filename, e);
+        }
+    }
+
+    // Names come from entity photo URLs, so only plain stored file names may be deleted
+    private static void checkStoredName(String filename) {
+        if (!StringUtils.hasText(filename)
+                || filename.startsWith(".")
+                || filename.contains("/")
+                || filename.contains("\\")) {
+            throw new StorageException("Not a stored file name: " + filename);
+        }
+    }
+
     @Override
     public Optional<Resource> loadAsResource(String filename) {
+        if (metadataIndex.isReady()) {
+            // Unknown names, including random ids from bots, are rejected without a disk lookup
+            PhotoMetadataIndex.Entry entry = metadataIndex.get(filename);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            // Files the layout migration hasn't moved yet may move under us, so look those up
+            Path file = entry.legacyFlat()
+                    ? layout.locate(rootLocation, filename)
+                    : layout.resolve(rootLocation, filename);
+            return Optional.of(new IndexedFileResource(file, entry));
+        }
         try {
             // Resolve the file path relative to our root location
-            Path file = rootLocation.resolve(filename);
+            Path file = layout.locate(rootLocation, filename);
             // Create a Resource object from the file path
             Resource resource = new UrlResource(file.toUri());
             // Check if the resource exists and is readable
@@ -84,4 +313,69 @@ public class FileSystemStorageService implements StorageService {
             return Optional.empty();
         }
     }
+
+    // Moves files stored before sharding was enabled into their shard directories
+    public int migrateFlatFiles() {
+        if (!layout.isSharded()) {
+            return 0;
+        }
+        int moved = 0;
+        // Streamed, so the listing of a large flat directory is never held in memory
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(rootLocation, Files::isRegularFile)) {
+            for (Path file : files) {
+                String filename = file.getFileName().toString();
+                // Content-addressed blobs move together with their counts, under the blob's lock
+                boolean fileMoved = referenceCounts != null
+                        ? referenceCounts.migrate(filename)
+                        : layout.moveToShard(rootLocation, filename);
+                if (fileMoved) {
+                    metadataIndex.markSharded(filename);
+                    moved++;
+                }
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to migrate stored files after " + moved + " files", e);
+        }
+        return moved;
+    }
+
+    // A stored file whose existence, length, modification time and headers come from the index
+    private static class IndexedFileResource extends FileSystemResource implements StoredFileAttributes {
+        private final PhotoMetadataIndex.Entry entry;
+
+        IndexedFileResource(Path file, PhotoMetadataIndex.Entry entry) {
+            super(file);
+            this.entry = entry;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public boolean isReadable() {
+            return true;
+        }
+
+        @Override
+        public long contentLength() {
+            return entry.size();
+        }
+
+        @Override
+        public long lastModified() {
+            return entry.lastModified();
+        }
+
+        @Override
+        public MediaType getContentType() {
+            return entry.contentType();
+        }
+
+        @Override
+        public Optional<String> getDigest() {
+            return Optional.ofNullable(entry.digest());
+        }
+    }
 }
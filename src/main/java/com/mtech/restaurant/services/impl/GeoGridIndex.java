@@ -0,0 +1,412 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
+import com.mtech.restaurant.domain.RestaurantPin;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional in-memory grid of restaurant locations for map and nearby queries. Restaurants are
+ * bucketed into fixed-size lat/lon cells, each holding its points in parallel primitive arrays.
+ * A query only visits the cells its bounding box overlaps.
+ *
+ * <p>Cells are immutable. Writers replace whole cells under a lock and readers never block. The
+ * grid is built from an Elasticsearch scan after startup and kept current through
+ * {@link RestaurantChangedEvent}s, which review writes publish too so ratings stay current; a
+ * change older than one already applied to a restaurant is skipped. A periodic rebuild picks up
+ * changes made through other instances. Until the first build, which runs in the background
+ * after startup, completes the index is cold, and callers must query Elasticsearch instead.
+ */
+@Component
+@Slf4j
+public class GeoGridIndex {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = 111.32;
+    private static final String[] PIN_FIELDS = {"name", "cuisineType", "averageRating", "geoLocation"};
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final boolean enabled;
+    private final double cellDegrees;
+
+    private final Object writeLock = new Object();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile Grid grid = new Grid();
+    private volatile boolean ready;
+    // Changes that arrive while a rebuild scans, replayed onto the new grid; guarded by writeLock
+    private List<RestaurantChangedEvent> changesDuringRebuild;
+
+    public GeoGridIndex(
+            ElasticsearchOperations elasticsearchOperations,
+            @Value("${app.search.geo-grid.enabled:false}") boolean enabled,
+            @Value("${app.search.geo-grid.cell-degrees:0.1}") double cellDegrees) {
+        this.elasticsearchOperations = elasticsearchOperations;
+        this.enabled = enabled;
+        this.cellDegrees = cellDegrees;
+    }
+
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    // Restaurants within radiusKm of the point, nearest first
+    public List<RestaurantPin> nearby(double latitude, double longitude, double radiusKm, Float minRating, int limit) {
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        // Degrees of longitude shrink towards the poles
+        double longitudeDelta = radiusKm / (KM_PER_DEGREE * Math.max(Math.cos(Math.toRadians(latitude)), 0.01));
+        // Near the antimeridian the box wraps around, which visit splits in two
+        boolean allLongitudes = longitudeDelta >= 180;
+        List<RestaurantPin> pins = new ArrayList<>();
+        visit(
+                latitude - latitudeDelta,
+                allLongitudes ? -180 : wrapLongitude(longitude - longitudeDelta),
+                latitude + latitudeDelta,
+                allLongitudes ? 180 : wrapLongitude(longitude + longitudeDelta),
+                minRating,
+                (cell, i) -> {
+                    double distance = distanceKm(latitude, longitude, cell.latitudes[i], cell.longitudes[i]);
+                    if (distance <= radiusKm) {
+                        pins.add(cell.toPin(i, distance));
+                    }
+                });
+        pins.sort(Comparator.comparingDouble(RestaurantPin::getDistanceKm));
+        return pins.size() > limit ? pins.subList(0, limit) : pins;
+    }
+
+    // Restaurants inside the bounding box, best rated first; a box with minLongitude above
+    // maxLongitude crosses the antimeridian
+    public List<RestaurantPin> within(
+            double minLatitude,
+            double minLongitude,
+            double maxLatitude,
+            double maxLongitude,
+            Float minRating,
+            int limit) {
+        List<RestaurantPin> pins = new ArrayList<>();
+        visit(
+                minLatitude,
+                minLongitude,
+                maxLatitude,
+                maxLongitude,
+                minRating,
+                (cell, i) -> pins.add(cell.toPin(i, null)));
+        pins.sort(Comparator.comparing(RestaurantPin::getAverageRating, Comparator.reverseOrder()));
+        return pins.size() > limit ? pins.subList(0, limit) : pins;
+    }
+
+    @EventListener
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (writeLock) {
+            grid.apply(event);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(event);
+            }
+        }
+    }
+
+    // Built off the startup thread, so a large index doesn't hold up the application becoming ready
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAfterStartup() {
+        if (enabled) {
+            Thread.ofPlatform().name("geo-grid-build").daemon().start(this::rebuild);
+        }
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.search.geo-grid.refresh-interval:PT15M}",
+            initialDelayString = "${app.search.geo-grid.refresh-interval:PT15M}")
+    public void rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            synchronized (writeLock) {
+                changesDuringRebuild = new ArrayList<>();
+            }
+            Grid fresh = new Grid();
+            NativeQuery query = NativeQuery.builder()
+                    .withQuery(q -> q.exists(e -> e.field("geoLocation")))
+                    .withSourceFilter(
+                            new FetchSourceFilterBuilder().withIncludes(PIN_FIELDS).build())
+                    .withSeqNoPrimaryTerm(true)
+                    .build();
+            try (SearchHitsIterator<Restaurant> hits =
+                    elasticsearchOperations.searchForStream(query, Restaurant.class)) {
+                hits.forEachRemaining(hit -> fresh.apply(RestaurantChangedEvent.saved(hit.getContent())));
+            }
+            synchronized (writeLock) {
+                changesDuringRebuild.forEach(fresh::apply);
+                grid = fresh;
+                ready = true;
+            }
+            log.info("Built geo grid with {} restaurants in {} cells", fresh.cellKeys.size(), fresh.cells.size());
+        } catch (RuntimeException e) {
+            log.error("Building the geo grid failed, map queries will keep using Elasticsearch", e);
+        } finally {
+            synchronized (writeLock) {
+                changesDuringRebuild = null;
+            }
+            rebuilding.set(false);
+        }
+    }
+
+    private void visit(
+            double minLatitude,
+            double minLongitude,
+            double maxLatitude,
+            double maxLongitude,
+            Float minRating,
+            PointVisitor visitor) {
+        if (minLongitude > maxLongitude) {
+            // Crosses the antimeridian: the part up to 180 and the part from -180
+            visit(minLatitude, minLongitude, maxLatitude, 180, minRating, visitor);
+            visit(minLatitude, -180, maxLatitude, maxLongitude, minRating, visitor);
+            return;
+        }
+        Grid current = grid;
+        float ratingFloor = minRating == null ? Float.NEGATIVE_INFINITY : minRating;
+        long firstRow = row(Math.max(minLatitude, -90));
+        long lastRow = row(Math.min(maxLatitude, 90));
+        long firstColumn = column(Math.max(minLongitude, -180));
+        long lastColumn = column(Math.min(maxLongitude, 180));
+        // Large boxes cover more cells than exist; walk the occupied ones instead
+        if ((lastRow - firstRow + 1) * (lastColumn - firstColumn + 1) > current.cells.size()) {
+            current.cells.values()
+                    .forEach(cell -> visitCell(
+                            cell, minLatitude, minLongitude, maxLatitude, maxLongitude, ratingFloor, visitor));
+            return;
+        }
+        for (long row = firstRow; row <= lastRow; row++) {
+            for (long column = firstColumn; column <= lastColumn; column++) {
+                Cell cell = current.cells.get(key(row, column));
+                if (cell != null) {
+                    visitCell(cell, minLatitude, minLongitude, maxLatitude, maxLongitude, ratingFloor, visitor);
+                }
+            }
+        }
+    }
+
+    private static void visitCell(
+            Cell cell,
+            double minLatitude,
+            double minLongitude,
+            double maxLatitude,
+            double maxLongitude,
+            float ratingFloor,
+            PointVisitor visitor) {
+        for (int i = 0; i < cell.ids.length; i++) {
+            double latitude = cell.latitudes[i];
+            double longitude = cell.longitudes[i];
+            if (cell.ratings[i] >= ratingFloor
+                    && latitude >= minLatitude
+                    && latitude <= maxLatitude
+                    && longitude >= minLongitude
+                    && longitude <= maxLongitude) {
+                visitor.visit(cell, i);
+            }
+        }
+    }
+
+    private static double wrapLongitude(double longitude) {
+        if (longitude < -180) {
+            return longitude + 360;
+        }
+        return longitude > 180 ? longitude - 360 : longitude;
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((latitude + 90) / cellDegrees);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / cellDegrees);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xFFFFFFFFL);
+    }
+
+    // Haversine distance
+    private static double distanceKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double a = Math.pow(Math.sin(latitudeDelta / 2), 2)
+                + Math.cos(Math.toRadians(latitude1))
+                        * Math.cos(Math.toRadians(latitude2))
+                        * Math.pow(Math.sin(longitudeDelta / 2), 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.sqrt(a));
+    }
+
+    @FunctionalInterface
+    private interface PointVisitor {
+        void visit(Cell cell, int index);
+    }
+
+    private final class Grid {
+        private final Map<Long, Cell> cells = new ConcurrentHashMap<>();
+        // Which cell each restaurant is in, and the last change applied to it; only touched by writers
+        private final Map<String, Long> cellKeys = new HashMap<>();
+        private final Map<String, Long> sequenceNumbers = new HashMap<>();
+
+        void apply(RestaurantChangedEvent event) {
+            String id = event.getRestaurantId();
+            Long applied = sequenceNumbers.get(id);
+            if (applied != null && !event.supersedes(applied)) {
+                return;
+            }
+            if (event.isRated()) {
+                Long key = cellKeys.get(id);
+                if (key != null) {
+                    float rating = event.getRating().getAverageRating();
+                    cells.computeIfPresent(key, (k, cell) -> cell.withRating(id, rating));
+                    sequenceNumbers.put(id, event.getSequenceNumber());
+                }
+                return;
+            }
+            Long previousKey = cellKeys.remove(id);
+            if (previousKey != null) {
+                cells.computeIfPresent(previousKey, (key, cell) -> cell.without(id));
+            }
+            sequenceNumbers.remove(id);
+            if (!event.isDeleted() && add(event.getRestaurant())) {
+                sequenceNumbers.put(id, event.getSequenceNumber());
+            }
+        }
+
+        // False when the restaurant has no place on the map
+        boolean add(Restaurant restaurant) {
+            GeoPoint location = restaurant.getGeoLocation();
+            if (restaurant.getId() == null || location == null) {
+                return false;
+            }
+            long key = key(row(location.getLat()), column(location.getLon()));
+            float rating = restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating();
+            Cell single = new Cell(
+                    new String[] {restaurant.getId()},
+                    new String[] {restaurant.getName()},
+                    new String[] {restaurant.getCuisineType()},
+                    new float[] {rating},
+                    new double[] {location.getLat()},
+                    new double[] {location.getLon()});
+            cells.merge(key, single, Cell::plus);
+            cellKeys.put(restaurant.getId(), key);
+            return true;
+        }
+    }
+
+    // Parallel arrays, one slot per restaurant
+    private record Cell(
+            String[] ids,
+            String[] names,
+            String[] cuisineTypes,
+            float[] ratings,
+            double[] latitudes,
+            double[] longitudes) {
+
+        Cell plus(Cell other) {
+            return new Cell(
+                    concat(ids, other.ids),
+                    concat(names, other.names),
+                    concat(cuisineTypes, other.cuisineTypes),
+                    concat(ratings, other.ratings),
+                    concat(latitudes, other.latitudes),
+                    concat(longitudes, other.longitudes));
+        }
+
+        // Null when the cell becomes empty, which removes it from the grid
+        Cell without(String id) {
+            int index = Arrays.asList(ids).indexOf(id);
+            if (index < 0) {
+                return this;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            return new Cell(
+                    remove(ids, index),
+                    remove(names, index),
+                    remove(cuisineTypes, index),
+                    remove(ratings, index),
+                    remove(latitudes, index),
+                    remove(longitudes, index));
+        }
+
+        Cell withRating(String id, float rating) {
+            int index = Arrays.asList(ids).indexOf(id);
+            if (index < 0) {
+                return this;
+            }
+            float[] updated = ratings.clone();
+            updated[index] = rating;
+            return new Cell(ids, names, cuisineTypes, updated, latitudes, longitudes);
+        }
+
+        RestaurantPin toPin(int index, Double distanceKm) {
+            return RestaurantPin.builder()
+                    .id(ids[index])
+                    .name(names[index])
+                    .cuisineType(cuisineTypes[index])
+                    .averageRating(ratings[index])
+                    .latitude(latitudes[index])
+                    .longitude(longitudes[index])
+                    .distanceKm(distanceKm)
+                    .build();
+        }
+
+        private static String[] concat(String[] first, String[] second) {
+            String[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+
+        private static float[] concat(float[] first, float[] second) {
+            float[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+
+        private static double[] concat(double[] first, double[] second) {
+            double[] result = Arrays.copyOf(first, first.length + second.length);
+            System.arraycopy(second, 0, result, first.length, second.length);
+            return result;
+        }
+
+        private static String[] remove(String[] values, int index) {
+            String[] result = Arrays.copyOf(values, values.length - 1);
+            System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+            return result;
+        }
+
+        private static float[] remove(float[] values, int index) {
+            float[] result = Arrays.copyOf(values, values.length - 1);
+            System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+            return result;
+        }
+
+        private static double[] remove(double[] values, int index) {
+            double[] result = Arrays.copyOf(values, values.length - 1);
+            System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mtech.restaurant.services.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Optional;
+
+// Recognizes the image formats we accept from their leading magic bytes
+final class ImageTypeSniffer {
+    // Enough for the longest signature below (RIFF....WEBP)
+    static final int HEADER_LENGTH = 12;
+
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF87A = "GIF87a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GIF89A = "GIF89a".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] RIFF = "RIFF".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] WEBP = "WEBP".getBytes(StandardCharsets.US_ASCII);
+
+    private ImageTypeSniffer() {}
+
+    // File extension for the detected format, empty when the bytes are not a supported image
+    static Optional<String> extensionFor(byte[] header) {
+        if (startsWith(header, 0, JPEG)) {
+            return Optional.of("jpg");
+        }
+        if (startsWith(header, 0, PNG)) {
+            return Optional.of("png");
+        }
+        if (startsWith(header, 0, GIF87A) || startsWith(header, 0, GIF89A)) {
+            return Optional.of("gif");
+        }
+        if (startsWith(header, 0, RIFF) && startsWith(header, 8, WEBP)) {
+            return Optional.of("webp");
+        }
+        return Optional.empty();
+    }
+
+    private static boolean startsWith(byte[] header, int offset, byte[] signature) {
+        return header.length >= offset + signature.length
+                && Arrays.equals(header, offset, offset + signature.length, signature, 0, signature.length);
+    }
+}
@@ -0,0 +1,109 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.entities.LegacyRestaurantReviews;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.domain.entities.Review;
+import com.mtech.restaurant.repositories.ReviewRepository;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.ByQueryResponse;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves reviews that are still nested inside restaurant documents into the reviews index.
+ * Review ids are kept, so the migration is idempotent and safe to re-run after a partial failure.
+ *
+ * <p>It runs once all singletons exist but before the web server starts, because a restaurant
+ * save in the meantime would overwrite the document and drop reviews not yet moved. For the same
+ * reason a failed migration fails startup; it resumes where it stopped on the next start.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.reviews.migrate-nested", havingValue = "true", matchIfMissing = true)
+public class NestedReviewMigration implements SmartInitializingSingleton {
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final ReviewRepository reviewRepository;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        migrate();
+    }
+
+    public void migrate() {
+        // Only restaurants that still carry a nested reviews array
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.nested(n -> n.path("reviews")
+                        .ignoreUnmapped(true)
+                        .query(nq -> nq.exists(e -> e.field("reviews.id")))))
+                .withSourceFilter(
+                        new FetchSourceFilterBuilder().withIncludes("reviews").build())
+                .build();
+        int migrated = 0;
+        try (SearchHitsIterator<LegacyRestaurantReviews> hits =
+                elasticsearchOperations.searchForStream(query, LegacyRestaurantReviews.class)) {
+            while (hits.hasNext()) {
+                SearchHit<LegacyRestaurantReviews> hit = hits.next();
+                migrateRestaurant(hit.getId(), hit.getContent().getReviews());
+                migrated++;
+            }
+        } catch (RuntimeException e) {
+            // Serving restaurant writes now would drop the reviews of restaurants not yet migrated
+            throw new IllegalStateException(
+                    "Nested review migration stopped after " + migrated + " restaurants, refusing to start", e);
+        }
+        if (migrated > 0) {
+            log.info("Migrated nested reviews of {} restaurants", migrated);
+        }
+        backfillReviewCounters();
+    }
+
+    // Restaurants that never had reviews get explicit zero counters so they sort and filter by popularity
+    private void backfillReviewCounters() {
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.mustNot(mn -> mn.exists(e -> e.field("totalReviews")))))
+                .build();
+        UpdateQuery updateQuery = UpdateQuery.builder(query)
+                .withScript("ctx._source.totalReviews = 0; ctx._source.ratingSum = 0;")
+                .withLang("painless")
+                .withAbortOnVersionConflict(false)
+                .build();
+        try {
+            ByQueryResponse response = elasticsearchOperations.updateByQuery(
+                    updateQuery, elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+            if (response.getUpdated() > 0) {
+                log.info("Backfilled review counters on {} restaurants", response.getUpdated());
+            }
+        } catch (RuntimeException e) {
+            log.error("Review counter backfill failed", e);
+        }
+    }
+
+    private void migrateRestaurant(String restaurantId, List<Review> reviews) {
+        reviews.forEach(review -> review.setRestaurantId(restaurantId));
+        reviewRepository.saveAll(reviews);
+        long ratingSum = reviews.stream().mapToLong(Review::getRating).sum();
+        float averageRating = reviews.isEmpty() ? 0f : (float) ratingSum / reviews.size();
+        // Drop the nested payload and keep the denormalized stats in step
+        UpdateQuery updateQuery = UpdateQuery.builder(restaurantId)
+                .withScript("ctx._source.remove('reviews');"
+                        + " ctx._source.totalReviews = params.totalReviews;"
+                        + " ctx._source.ratingSum = params.ratingSum;"
+                        + " ctx._source.averageRating = params.averageRating;")
+                .withLang("painless")
+                .withParams(Map.of(
+                        "totalReviews", reviews.size(), "ratingSum", ratingSum, "averageRating", averageRating))
+                .build();
+        elasticsearchOperations.update(updateQuery, elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class));
+    }
+}
@@ -0,0 +1,115 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.OpeningIntervals;
+import com.mtech.restaurant.domain.entities.MinuteRange;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.document.Document;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.data.elasticsearch.core.query.UpdateQuery;
+import org.springframework.stereotype.Component;
+
+/**
+ * Adds the openingIntervals integer_range mapping to an existing restaurants index and fills the field in from
+ * the stored operatingHours of restaurants saved before it existed. Re-running only touches
+ * restaurants that still lack it.
+ *
+ * <p>An index that already mapped openingIntervals dynamically, because a document carrying it was
+ * written before the mapping was put, can't be changed to integer_range in place. The mapping
+ * update then fails and the index has to be reindexed into one created from the current mapping.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(
+        name = "app.restaurants.backfill-opening-intervals",
+        havingValue = "true",
+        matchIfMissing = true)
+public class OpeningIntervalsBackfill implements SmartInitializingSingleton {
+    private static final int BATCH_SIZE = 500;
+    // Leaves restaurants alone that a write gave intervals to since the scan read them
+    private static final String SET_IF_MISSING_SCRIPT = "if (ctx._source.openingIntervals == null) {"
+            + " ctx._source.openingIntervals = params.intervals; } else { ctx.op = 'none'; }";
+
+    private final ElasticsearchOperations elasticsearchOperations;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfill();
+    }
+
+    public void backfill() {
+        try {
+            // Only this property; putting the whole entity mapping would also conflict on fields that
+            // update scripts added dynamically before the entity declared them
+            elasticsearchOperations
+                    .indexOps(Restaurant.class)
+                    .putMapping(Document.from(
+                            Map.of("properties", Map.of("openingIntervals", Map.of("type", "integer_range")))));
+        } catch (RuntimeException e) {
+            log.error("Could not map openingIntervals as integer_range, reindex the restaurants index", e);
+            return;
+        }
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.bool(b -> b.mustNot(mn -> mn.exists(e -> e.field("openingIntervals")))))
+                .withSourceFilter(new FetchSourceFilterBuilder()
+                        .withIncludes("operatingHours")
+                        .build())
+                .build();
+        IndexCoordinates index = elasticsearchOperations.getIndexCoordinatesFor(Restaurant.class);
+        List<UpdateQuery> batch = new ArrayList<>();
+        int updated = 0;
+        try (SearchHitsIterator<Restaurant> hits = elasticsearchOperations.searchForStream(query, Restaurant.class)) {
+            while (hits.hasNext()) {
+                SearchHit<Restaurant> hit = hits.next();
+                List<MinuteRange> intervals = OpeningIntervals.of(hit.getContent().getOperatingHours());
+                // Without hours there is nothing to store, an empty array would read as missing anyway
+                if (intervals.isEmpty()) {
+                    continue;
+                }
+                batch.add(UpdateQuery.builder(hit.getId())
+                        .withScript(SET_IF_MISSING_SCRIPT)
+                        .withLang("painless")
+                        .withParams(Map.of("intervals", toSource(intervals)))
+                        .build());
+                if (batch.size() == BATCH_SIZE) {
+                    updated += flush(batch, index);
+                }
+            }
+            updated += flush(batch, index);
+        } catch (RuntimeException e) {
+            log.error("Opening intervals backfill stopped after {} restaurants", updated, e);
+            return;
+        }
+        if (updated > 0) {
+            log.info("Backfilled opening intervals on {} restaurants", updated);
+        }
+    }
+
+    private int flush(List<UpdateQuery> batch, IndexCoordinates index) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        elasticsearchOperations.bulkUpdate(batch, index);
+        int flushed = batch.size();
+        batch.clear();
+        return flushed;
+    }
+
+    private static List<Map<String, Integer>> toSource(List<MinuteRange> intervals) {
+        return intervals.stream()
+                .map(interval -> Map.of("gte", interval.getGte(), "lt", interval.getLt()))
+                .toList();
+    }
+}
@@ -0,0 +1,65 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.exceptions.WriteConflictException;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs a read-modify-write against Elasticsearch and repeats it when the write loses a
+ * seq_no/primary_term check. The supplied write must re-read the document on every attempt.
+ */
+@Component
+@Slf4j
+public class OptimisticWriteRetrier {
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public OptimisticWriteRetrier(
+            MeterRegistry meterRegistry,
+            @Value("${app.writes.max-attempts:5}") int maxAttempts,
+            @Value("${app.writes.backoff-ms:10}") long backoffMillis) {
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(0, backoffMillis);
+    }
+
+    public <T> T execute(String operation, Supplier<T> write) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write.get();
+            } catch (OptimisticLockingFailureException e) {
+                meterRegistry
+                        .counter("restaurant.writes.conflicts", "operation", operation)
+                        .increment();
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up on {} after {} conflicting attempts", operation, attempt);
+                    throw new WriteConflictException("Concurrent update conflict on " + operation, e);
+                }
+                meterRegistry
+                        .counter("restaurant.writes.retries", "operation", operation)
+                        .increment();
+                sleepWithJitter(operation, attempt, e);
+            }
+        }
+    }
+
+    // Full jitter over an exponentially growing window so competing writers spread out
+    private void sleepWithJitter(String operation, int attempt, OptimisticLockingFailureException cause) {
+        long window = backoffMillis << Math.min(attempt - 1, 10);
+        if (window <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(window + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteConflictException("Interrupted while retrying " + operation, cause);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.mtech.restaurant.services.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.sun.management.HotSpotDiagnosticMXBean;
+import com.mtech.restaurant.services.StorageService;
+import com.mtech.restaurant.services.StoredFileAttributes;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.AbstractResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the bytes of frequently served photos in direct buffers, bounded by a total byte budget.
+ * Caffeine's frequency-aware eviction keeps hot photos resident while one-off views pass through.
+ * Stored file names are never rewritten, so entries need no invalidation; only photos that exist
+ * are cached, which keeps pending size variants from being pinned as missing.
+ *
+ * <p>Evicted buffers are only freed once the garbage collector finds them, so the direct memory
+ * in use can run past the byte budget. The budget is therefore capped at half of
+ * {@code -XX:MaxDirectMemorySize} (the heap size when unset), leaving the rest for evicted
+ * buffers awaiting collection and for I/O buffers; raise that limit to hold more photos.
+ */
+@Component
+@Slf4j
+public class PhotoBytesCache {
+    private final StorageService storageService;
+    private final long maximumEntryBytes;
+    private final Cache<String, CachedPhoto> cache;
+
+    public PhotoBytesCache(
+            StorageService storageService,
+            MeterRegistry meterRegistry,
+            @Value("${app.photos.cache.enabled:false}") boolean enabled,
+            @Value("${app.photos.cache.maximum-bytes:268435456}") long maximumBytes,
+            @Value("${app.photos.cache.maximum-entry-bytes:4194304}") long maximumEntryBytes) {
+        this.storageService = storageService;
+        this.maximumEntryBytes = maximumEntryBytes;
+        if (!enabled) {
+            this.cache = null;
+            return;
+        }
+        // Direct buffers count against -XX:MaxDirectMemorySize, not the heap
+        long directMemoryBudget = maxDirectMemory() / 2;
+        if (maximumBytes > directMemoryBudget) {
+            log.warn(
+                    "Photo cache maximum of {} bytes exceeds half the direct memory limit, using {} bytes;"
+                            + " raise -XX:MaxDirectMemorySize to cache more",
+                    maximumBytes,
+                    directMemoryBudget);
+            maximumBytes = directMemoryBudget;
+        }
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maximumBytes)
+                .<String, CachedPhoto>weigher((filename, photo) -> photo.bytes().capacity())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "photoBytes");
+        Gauge.builder("photos.cache.resident.bytes", cache, PhotoBytesCache::residentBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("photos.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    public Optional<Resource> load(String filename) {
+        if (cache == null) {
+            return storageService.loadAsResource(filename);
+        }
+        // Concurrent misses for the same photo share one read
+        AtomicReference<Optional<Resource>> uncached = new AtomicReference<>();
+        CachedPhoto cached = cache.get(filename, name -> readCacheable(name, uncached));
+        if (cached != null) {
+            return Optional.of(new CachedPhotoResource(filename, cached));
+        }
+        // Missing, or too large to be worth holding in memory. The lookup this call made is the
+        // answer; only a miss loaded by a concurrent call has to look again
+        Optional<Resource> loaded = uncached.get();
+        return loaded != null ? loaded : storageService.loadAsResource(filename);
+    }
+
+    // Drops a deleted photo so it is not served from memory afterwards
+    public void evict(String filename) {
+        if (cache != null) {
+            cache.invalidate(filename);
+        }
+    }
+
+    // Returns null for photos that aren't cached, leaving the lookup in uncached for the caller
+    private CachedPhoto readCacheable(String filename, AtomicReference<Optional<Resource>> uncached) {
+        Optional<Resource> loaded = storageService.loadAsResource(filename);
+        uncached.set(loaded);
+        Resource resource = loaded.orElse(null);
+        if (resource == null) {
+            return null;
+        }
+        try {
+            long length = resource.contentLength();
+            if (length > maximumEntryBytes) {
+                return null;
+            }
+            ByteBuffer bytes = ByteBuffer.allocateDirect((int) length);
+            try (ReadableByteChannel channel = resource.readableChannel()) {
+                while (bytes.hasRemaining() && channel.read(bytes) != -1) {}
+            }
+            bytes.flip();
+            // Headers the storage index already knows are kept, so cached hits derive nothing either
+            if (resource instanceof StoredFileAttributes attributes) {
+                return new CachedPhoto(
+                        bytes.asReadOnlyBuffer(),
+                        resource.lastModified(),
+                        attributes.getContentType(),
+                        attributes.getDigest().orElse(null));
+            }
+            MediaType contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+            return new CachedPhoto(bytes.asReadOnlyBuffer(), resource.lastModified(), contentType, null);
+        } catch (IOException e) {
+            log.debug("Could not cache photo: " + filename, e);
+            return null;
+        }
+    }
+
+    private static long maxDirectMemory() {
+        String configured = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                .getVMOption("MaxDirectMemorySize")
+                .getValue();
+        long limit = Long.parseLong(configured);
+        // Zero means unset, in which case the JVM allows as much direct memory as heap
+        return limit > 0 ? limit : Runtime.getRuntime().maxMemory();
+    }
+
+    private static double residentBytes(Cache<String, CachedPhoto> cache) {
+        return cache.policy()
+                .eviction()
+                .flatMap(eviction -> eviction.weightedSize().stream().boxed().findFirst())
+                .orElse(0L);
+    }
+
+    private record CachedPhoto(ByteBuffer bytes, long lastModified, MediaType contentType, String digest) {}
+
+    // Serves a cached photo; every stream reads its own view of the shared buffer
+    private static class CachedPhotoResource extends AbstractResource implements StoredFileAttributes {
+        private final String filename;
+        private final CachedPhoto photo;
+
+        CachedPhotoResource(String filename, CachedPhoto photo) {
+            this.filename = filename;
+            this.photo = photo;
+        }
+
+        @Override
+        public boolean exists() {
+            return true;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long contentLength() {
+            return photo.bytes().remaining();
+        }
+
+        @Override
+        public long lastModified() {
+            return photo.lastModified();
+        }
+
+        @Override
+        public MediaType getContentType() {
+            return photo.contentType();
+        }
+
+        @Override
+        public Optional<String> getDigest() {
+            return Optional.ofNullable(photo.digest());
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            ByteBuffer view = photo.bytes().duplicate();
+            return new InputStream() {
+                @Override
+                public int read() {
+                    return view.hasRemaining() ? view.get() & 0xFF : -1;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    if (length == 0) {
+                        return 0;
+                    }
+                    if (!view.hasRemaining()) {
+                        return -1;
+                    }
+                    int count = Math.min(length, view.remaining());
+                    view.get(buffer, offset, count);
+                    return count;
+                }
+
+                @Override
+                public long skip(long n) {
+                    int count = (int) Math.max(0, Math.min(n, view.remaining()));
+                    view.position(view.position() + count);
+                    return count;
+                }
+
+                @Override
+                public int available() {
+                    return view.remaining();
+                }
+            };
+        }
+
+        @Override
+        public String getDescription() {
+            return "Cached photo [" + filename + "]";
+        }
+    }
+}
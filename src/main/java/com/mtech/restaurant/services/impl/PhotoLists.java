@@ -0,0 +1,28 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.entities.Photo;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/** Compares the photo lists of an entity before and after an edit. */
+final class PhotoLists {
+    private PhotoLists() {}
+
+    // Photos of the current list whose URL the previous list didn't contain
+    static List<Photo> added(List<Photo> previous, List<Photo> current) {
+        return removed(current, previous);
+    }
+
+    // Photos of the previous list whose URL the current list no longer contains
+    static List<Photo> removed(List<Photo> previous, List<Photo> current) {
+        if (previous == null) {
+            return List.of();
+        }
+        Set<String> kept = current == null
+                ? Set.of()
+                : current.stream().map(Photo::getUrl).filter(Objects::nonNull).collect(Collectors.toSet());
+        return previous.stream().filter(photo -> !kept.contains(photo.getUrl())).toList();
+    }
+}
@@ -0,0 +1,146 @@
+package com.mtech.restaurant.services.impl;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.util.StringUtils;
+
+/**
+ * In-memory record of every stored file, so existence, size, modification time, content type and
+ * digest are answered without touching the disk. It is built once by scanning the storage directory, one task per
+ * top-level shard directory. After that, the storage service keeps it current on every store and
+ * delete. Until the scan finishes, callers must fall back to the file system.
+ */
+@Slf4j
+final class PhotoMetadataIndex {
+    // legacyFlat marks files still in the flat root that the layout migration hasn't reached yet.
+    // digest is the base64 SHA-256 of the content, null when the file was never hashed
+    record Entry(long size, long lastModified, boolean legacyFlat, MediaType contentType, String digest) {
+        Entry asSharded() {
+            return new Entry(size, lastModified, false, contentType, digest);
+        }
+    }
+
+    private static final int HEX_DIGEST_LENGTH = 64;
+
+    static Entry entry(String filename, long size, long lastModified, boolean legacyFlat, byte[] sha256) {
+        // MediaTypeFactory hands out shared instances, so entries don't each hold a parsed type
+        MediaType contentType = MediaTypeFactory.getMediaType(filename).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        String digest = sha256 != null ? Base64.getEncoder().encodeToString(sha256) : null;
+        return new Entry(size, lastModified, legacyFlat, contentType, digest);
+    }
+
+    // Content-addressed names are the hex digest of the content, so the scan gets it without reading
+    private static byte[] digestFromName(String filename) {
+        String stem = StringUtils.stripFilenameExtension(filename);
+        if (stem.length() != HEX_DIGEST_LENGTH) {
+            return null;
+        }
+        try {
+            return HexFormat.of().parseHex(stem);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Deletes that race with the scan must not be resurrected by it
+    private final Set<String> removedDuringScan = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    boolean isReady() {
+        return ready;
+    }
+
+    Entry get(String filename) {
+        return entries.get(filename);
+    }
+
+    void put(String filename, Entry entry) {
+        entries.put(filename, entry);
+        removedDuringScan.remove(filename);
+    }
+
+    void remove(String filename) {
+        entries.remove(filename);
+        if (!ready) {
+            removedDuringScan.add(filename);
+        }
+    }
+
+    void markSharded(String filename) {
+        entries.computeIfPresent(filename, (name, entry) -> entry.asSharded());
+    }
+
+    void build(Path root, int threads) {
+        long started = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (Stream<Path> children = Files.list(root)) {
+            // Dot entries are internal: reference counts, partial uploads and temp files
+            List<Path> visible = children.filter(path ->
+                            !path.getFileName().toString().startsWith("."))
+                    .toList();
+            pool.submit(() -> visible.parallelStream().forEach(path -> {
+                        if (Files.isDirectory(path)) {
+                            scanShard(path);
+                        } else {
+                            index(path, true);
+                        }
+                    }))
+                    .join();
+            ready = true;
+            removedDuringScan.clear();
+            log.info(
+                    "Indexed {} stored files in {} ms",
+                    entries.size(),
+                    (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | RuntimeException e) {
+            log.error("Building the stored file index failed, lookups will keep using the file system", e);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void scanShard(Path shard) {
+        try (Stream<Path> files = Files.walk(shard, 2)) {
+            files.filter(Files::isRegularFile).forEach(file -> index(file, false));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void index(Path file, boolean legacyFlat) {
+        String filename = file.getFileName().toString();
+        if (filename.startsWith(".") || removedDuringScan.contains(filename)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            // Entries written by concurrent stores are newer than what the scan sees
+            entries.putIfAbsent(
+                    filename,
+                    entry(
+                            filename,
+                            attributes.size(),
+                            attributes.lastModifiedTime().toMillis(),
+                            legacyFlat,
+                            digestFromName(filename)));
+        } catch (IOException e) {
+            // Deleted while scanning
+            log.debug("Could not index stored file {}", file, e);
+        }
+    }
+}
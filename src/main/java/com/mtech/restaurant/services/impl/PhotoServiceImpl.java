@@ -1,27 +1,56 @@
 package com.mtech.restaurant.services.impl;
 
+import com.mtech.restaurant.domain.PhotoSize;
+import com.mtech.restaurant.domain.PhotoUploadResult;
 import com.mtech.restaurant.domain.entities.Photo;
+import com.mtech.restaurant.exceptions.BaseException;
+import com.mtech.restaurant.exceptions.InvalidUploadException;
+import com.mtech.restaurant.exceptions.StorageException;
+import com.mtech.restaurant.exceptions.UploadTooLargeException;
 import com.mtech.restaurant.services.PhotoService;
 import com.mtech.restaurant.services.StorageService;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class PhotoServiceImpl implements PhotoService {
     private final StorageService storageService;
+    private final PhotoVariantGenerator photoVariantGenerator;
+    private final PhotoBytesCache photoBytesCache;
+    private final ExecutorService photoUploadExecutor;
+
+    @Value("${app.photos.uploads.maximum-bytes:20971520}")
+    private long maximumUploadBytes;
+
+    @Value("${app.photos.batch.max-files:10}")
+    private int maximumBatchFiles;
 
     @Override
     public Photo uploadPhoto(MultipartFile file) {
         // Generate a unique ID for the photo
         String photoId = UUID.randomUUID().toString();
-        // Store the file and get its URL
+        // Store the file and get its URL (a content digest when storage deduplicates)
         String url = storageService.store(file, photoId);
+        // Resized variants are produced in the background
+        photoVariantGenerator.generate(url);
         // Create and populate the photo entity
         Photo photo = new Photo();
         photo.setUrl(url);
@@ -29,8 +58,103 @@ public class PhotoServiceImpl implements PhotoService {
         return photo;
     }
 
+    @Override
+    public List<PhotoUploadResult> uploadPhotos(List<MultipartFile> files) {
+        if (files.size() > maximumBatchFiles) {
+            throw new InvalidUploadException("At most " + maximumBatchFiles + " files can be uploaded at once");
+        }
+        // Start every file before waiting on any, so the batch takes about as long as its slowest file
+        List<CompletableFuture<PhotoUploadResult>> uploads = files.stream()
+                .map(file -> CompletableFuture.supplyAsync(() -> uploadOne(file), photoUploadExecutor))
+                .toList();
+        return uploads.stream().map(CompletableFuture::join).toList();
+    }
+
+    private PhotoUploadResult uploadOne(MultipartFile file) {
+        try {
+            Photo photo = uploadPhoto(file);
+            return PhotoUploadResult.builder()
+                    .filename(file.getOriginalFilename())
+                    .success(true)
+                    .photo(photo)
+                    .build();
+        } catch (RuntimeException e) {
+            log.warn("Failed to store {} from a batch upload", file.getOriginalFilename(), e);
+            return PhotoUploadResult.builder()
+                    .filename(file.getOriginalFilename())
+                    .success(false)
+                    .error(e instanceof BaseException ? e.getMessage() : "Failed to store file")
+                    .build();
+        }
+    }
+
+    @Override
+    public Photo uploadPhoto(InputStream body, long contentLength) {
+        // Reject declared oversize bodies before reading anything
+        if (contentLength > maximumUploadBytes) {
+            throw new UploadTooLargeException("Upload exceeds the allowed size of " + maximumUploadBytes + " bytes");
+        }
+        try {
+            // Sniff the format from the first bytes, then hand them back in front of the rest of the stream
+            byte[] header = body.readNBytes(ImageTypeSniffer.HEADER_LENGTH);
+            String extension = ImageTypeSniffer.extensionFor(header)
+                    .orElseThrow(() -> new InvalidUploadException("Unsupported image format"));
+            InputStream content = new SequenceInputStream(new ByteArrayInputStream(header), body);
+            String url = storageService.store(
+                    content, extension, UUID.randomUUID().toString(), maximumUploadBytes);
+            photoVariantGenerator.generate(url);
+            Photo photo = new Photo();
+            photo.setUrl(url);
+            photo.setUploadDate(LocalDateTime.now());
+            return photo;
+        } catch (IOException e) {
+            throw new StorageException("Failed to read upload", e);
+        }
+    }
+
     @Override
     public Optional<Resource> getPhotoAsResource(String id) {
-        return storageService.loadAsResource(id);
+        // Hot photos are served from memory when the cache is enabled
+        return photoBytesCache.load(id);
+    }
+
+    @Override
+    public void retainPhotos(Collection<Photo> photos) {
+        photos.stream().map(Photo::getUrl).filter(Objects::nonNull).distinct().forEach(url -> {
+            try {
+                storageService.retain(url);
+            } catch (RuntimeException e) {
+                // The photo stays uncounted, which only means it is never cleaned up
+                log.warn("Could not retain photo {}", url, e);
+            }
+        });
+    }
+
+    @Override
+    public void releasePhotos(Collection<Photo> photos) {
+        photos.stream().map(Photo::getUrl).filter(Objects::nonNull).distinct().forEach(this::releasePhoto);
+    }
+
+    private void releasePhoto(String url) {
+        try {
+            if (!storageService.release(url)) {
+                return;
+            }
+            // Variants are generated per stored file, so they go with its last reference
+            photoBytesCache.evict(url);
+            for (PhotoSize size : PhotoSize.values()) {
+                String variant = size.variantOf(url);
+                storageService.delete(variant);
+                photoBytesCache.evict(variant);
+            }
+        } catch (RuntimeException e) {
+            // The entity no longer references the photo either way; a leftover file only costs space
+            log.warn("Could not release photo {}", url, e);
+        }
+    }
+
+    @Override
+    public Optional<Resource> getPhotoVariantAsResource(String id, PhotoSize size) {
+        return photoBytesCache.load(size.variantOf(id));
     }
 }
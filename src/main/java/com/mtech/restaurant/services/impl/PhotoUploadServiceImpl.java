@@ -0,0 +1,336 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.ByteRange;
+import com.mtech.restaurant.domain.PhotoUploadStatus;
+import com.mtech.restaurant.domain.entities.Photo;
+import com.mtech.restaurant.exceptions.InvalidUploadException;
+import com.mtech.restaurant.exceptions.StorageException;
+import com.mtech.restaurant.exceptions.UploadSessionNotFoundException;
+import com.mtech.restaurant.exceptions.UploadTooLargeException;
+import com.mtech.restaurant.services.PhotoUploadService;
+import com.mtech.restaurant.services.StorageService;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Chunked uploads backed by one sparse partial file per session. Each chunk is a short request
+ * that writes at its own offset, so lost chunks can be re-sent without restarting the upload.
+ * Sessions live in memory and belong to the instance that created them; partial files left behind
+ * by a restart are removed once they are older than the session TTL.
+ */
+@Service
+@Slf4j
+public class PhotoUploadServiceImpl implements PhotoUploadService {
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    private final StorageService storageService;
+    private final PhotoVariantGenerator photoVariantGenerator;
+    private final Path uploadsLocation;
+    private final long maximumBytes;
+    private final Duration ttl;
+    private final Map<String, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    public PhotoUploadServiceImpl(
+            StorageService storageService,
+            PhotoVariantGenerator photoVariantGenerator,
+            @Value("${app.photos.uploads.location:${app.storage.location:uploads}/.partial}") String uploadsLocation,
+            @Value("${app.photos.uploads.maximum-bytes:20971520}") long maximumBytes,
+            @Value("${app.photos.uploads.ttl:PT24H}") Duration ttl) {
+        this.storageService = storageService;
+        this.photoVariantGenerator = photoVariantGenerator;
+        this.uploadsLocation = Paths.get(uploadsLocation);
+        this.maximumBytes = maximumBytes;
+        this.ttl = ttl;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            Files.createDirectories(uploadsLocation);
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize upload location", e);
+        }
+    }
+
+    @Override
+    public PhotoUploadStatus createUpload(String ownerId, String filename, long size) {
+        if (size > maximumBytes) {
+            throw new UploadTooLargeException("Upload exceeds the allowed size of " + maximumBytes + " bytes");
+        }
+        String extension = StringUtils.getFilenameExtension(filename);
+        if (!StringUtils.hasText(extension)) {
+            throw new InvalidUploadException("Filename must have an extension");
+        }
+        String uploadId = UUID.randomUUID().toString();
+        Path file = uploadsLocation.resolve(uploadId + PARTIAL_SUFFIX);
+        try {
+            // Left sparse; chunks fill it in at their offsets
+            Files.createFile(file);
+        } catch (IOException e) {
+            throw new StorageException("Failed to create upload", e);
+        }
+        UploadSession session = new UploadSession(uploadId, ownerId, filename, extension, size, file);
+        sessions.put(uploadId, session);
+        return toStatus(session);
+    }
+
+    @Override
+    public PhotoUploadStatus writeChunk(String ownerId, String uploadId, long offset, InputStream chunk) {
+        UploadSession session = getSessionOrThrow(ownerId, uploadId);
+        if (offset < 0 || offset >= session.size) {
+            throw new InvalidUploadException("Offset must be between 0 and " + (session.size - 1));
+        }
+        // Completion, abort and expiry wait for this write before they touch the file
+        if (!session.beginWrite()) {
+            throw new InvalidUploadException("Upload is already being completed");
+        }
+        try {
+            session.touch();
+            long written;
+            try (ReadableByteChannel source = Channels.newChannel(chunk);
+                    FileChannel target = FileChannel.open(session.file, StandardOpenOption.WRITE)) {
+                written = ByteChannelCopier.copyAt(source, target, offset, session.size - offset);
+            } catch (IOException e) {
+                throw new StorageException("Failed to write upload chunk", e);
+            }
+            // Only record the range once the whole chunk is on disk
+            session.addRange(offset, offset + written);
+        } finally {
+            session.endWrite();
+        }
+        return toStatus(session);
+    }
+
+    @Override
+    public PhotoUploadStatus getUpload(String ownerId, String uploadId) {
+        return toStatus(getSessionOrThrow(ownerId, uploadId));
+    }
+
+    @Override
+    public Photo completeUpload(String ownerId, String uploadId) {
+        UploadSession session = getSessionOrThrow(ownerId, uploadId);
+        // Closing waits for in-flight chunks and refuses new ones, so the file is final from here on;
+        // a concurrent complete or abort of the same upload finds it already closed
+        if (!session.close()) {
+            throw new UploadSessionNotFoundException("Upload not found: " + uploadId);
+        }
+        long missing = session.size - session.receivedBytes();
+        if (missing > 0) {
+            session.reopen();
+            throw new InvalidUploadException("Upload is missing " + missing + " bytes");
+        }
+        String url;
+        try {
+            url = storageService.storeFile(session.file, session.extension, UUID.randomUUID().toString());
+        } finally {
+            // Kept registered until the file has moved, so the sweep never treats it as an orphan
+            sessions.remove(uploadId, session);
+        }
+        photoVariantGenerator.generate(url);
+        Photo photo = new Photo();
+        photo.setUrl(url);
+        photo.setUploadDate(LocalDateTime.now());
+        return photo;
+    }
+
+    @Override
+    public void abortUpload(String ownerId, String uploadId) {
+        UploadSession session = getSessionOrThrow(ownerId, uploadId);
+        if (session.close()) {
+            sessions.remove(uploadId, session);
+            deletePartialFile(session.file);
+        }
+    }
+
+    // Drops sessions that have seen no chunk within the TTL, plus partial files no session owns
+    @Scheduled(
+            fixedDelayString = "${app.photos.uploads.cleanup-interval:PT5M}",
+            initialDelayString = "${app.photos.uploads.cleanup-interval:PT5M}")
+    public void expireAbandonedUploads() {
+        Instant cutoff = Instant.now().minus(ttl);
+        sessions.values().removeIf(session -> {
+            // A session with a chunk still in flight isn't abandoned, and one being completed is not ours to drop
+            if (session.lastActivity.isAfter(cutoff) || !session.tryClose()) {
+                return false;
+            }
+            deletePartialFile(session.file);
+            return true;
+        });
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadsLocation, "*" + PARTIAL_SUFFIX)) {
+            for (Path file : files) {
+                String uploadId = StringUtils.stripFilenameExtension(
+                        file.getFileName().toString());
+                if (!sessions.containsKey(uploadId)
+                        && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                    deletePartialFile(file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Could not sweep abandoned uploads", e);
+        }
+    }
+
+    private UploadSession getSessionOrThrow(String ownerId, String uploadId) {
+        UploadSession session = sessions.get(uploadId);
+        // Other users' uploads look the same as missing ones
+        if (session == null || !session.ownerId.equals(ownerId)) {
+            throw new UploadSessionNotFoundException("Upload not found: " + uploadId);
+        }
+        return session;
+    }
+
+    private static void deletePartialFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete partial upload {}", file, e);
+        }
+    }
+
+    private PhotoUploadStatus toStatus(UploadSession session) {
+        return PhotoUploadStatus.builder()
+                .uploadId(session.id)
+                .filename(session.filename)
+                .size(session.size)
+                .receivedBytes(session.receivedBytes())
+                .receivedRanges(session.receivedRanges())
+                .expiresAt(LocalDateTime.ofInstant(session.lastActivity.plus(ttl), ZoneId.systemDefault()))
+                .build();
+    }
+
+    private static final class UploadSession {
+        private final String id;
+        private final String ownerId;
+        private final String filename;
+        private final String extension;
+        private final long size;
+        private final Path file;
+        // Received byte ranges, start -> end (exclusive), merged so they never overlap or touch
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+        private volatile Instant lastActivity = Instant.now();
+        // Chunk writes hold the read lock; closing takes the write lock, so it waits for them
+        private final ReentrantReadWriteLock writes = new ReentrantReadWriteLock();
+        private boolean closed;
+
+        UploadSession(String id, String ownerId, String filename, String extension, long size, Path file) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.filename = filename;
+            this.extension = extension;
+            this.size = size;
+            this.file = file;
+        }
+
+        void touch() {
+            lastActivity = Instant.now();
+        }
+
+        boolean beginWrite() {
+            writes.readLock().lock();
+            if (closed) {
+                writes.readLock().unlock();
+                return false;
+            }
+            return true;
+        }
+
+        void endWrite() {
+            writes.readLock().unlock();
+        }
+
+        // Blocks until in-flight writes finish; false if the session was already closed
+        boolean close() {
+            writes.writeLock().lock();
+            try {
+                return markClosed();
+            } finally {
+                writes.writeLock().unlock();
+            }
+        }
+
+        // Closes only when no write is in flight
+        boolean tryClose() {
+            if (!writes.writeLock().tryLock()) {
+                return false;
+            }
+            try {
+                return markClosed();
+            } finally {
+                writes.writeLock().unlock();
+            }
+        }
+
+        void reopen() {
+            writes.writeLock().lock();
+            try {
+                closed = false;
+            } finally {
+                writes.writeLock().unlock();
+            }
+        }
+
+        private boolean markClosed() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        synchronized void addRange(long start, long end) {
+            if (start >= end) {
+                return;
+            }
+            // Absorb any range that overlaps or touches the new one
+            Map.Entry<Long, Long> before = ranges.floorEntry(start);
+            if (before != null && before.getValue() >= start) {
+                start = before.getKey();
+                end = Math.max(end, before.getValue());
+            }
+            Map.Entry<Long, Long> next = ranges.ceilingEntry(start);
+            while (next != null && next.getKey() <= end) {
+                end = Math.max(end, next.getValue());
+                ranges.remove(next.getKey());
+                next = ranges.ceilingEntry(start);
+            }
+            ranges.put(start, end);
+        }
+
+        synchronized long receivedBytes() {
+            return ranges.entrySet().stream()
+                    .mapToLong(range -> range.getValue() - range.getKey())
+                    .sum();
+        }
+
+        synchronized List<ByteRange> receivedRanges() {
+            List<ByteRange> received = new ArrayList<>(ranges.size());
+            ranges.forEach((start, end) -> received.add(new ByteRange(start, end)));
+            return received;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.PhotoSize;
+import com.mtech.restaurant.services.StorageService;
+import jakarta.annotation.PreDestroy;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Generates the fixed-width {@link PhotoSize} variants of uploaded photos in the background. Work
+ * runs on a small bounded pool; when its queue is full the request is dropped and the photo keeps
+ * being served at its original size.
+ */
+@Component
+@Slf4j
+public class PhotoVariantGenerator {
+    // Widest variant; originals are decoded no larger than needed to produce it
+    private static final int MAX_VARIANT_WIDTH = Arrays.stream(PhotoSize.values())
+            .mapToInt(PhotoSize::getWidth)
+            .max()
+            .orElse(1);
+
+    private final StorageService storageService;
+    private final ThreadPoolExecutor executor;
+    private final long maxPixels;
+
+    public PhotoVariantGenerator(
+            StorageService storageService,
+            @Value("${app.photos.variants.threads:2}") int threads,
+            @Value("${app.photos.variants.queue-capacity:100}") int queueCapacity,
+            @Value("${app.photos.variants.max-pixels:100000000}") long maxPixels) {
+        this.storageService = storageService;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads,
+                threads,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "photo-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Queues variant generation without blocking the caller
+    public void generate(String filename) {
+        try {
+            executor.execute(() -> generateVariants(filename));
+        } catch (RejectedExecutionException e) {
+            log.warn("Photo variant queue is full, skipping variants for {}", filename);
+        }
+    }
+
+    private void generateVariants(String filename) {
+        String format = StringUtils.getFilenameExtension(filename);
+        if (format == null || !ImageIO.getImageWritersBySuffix(format).hasNext()) {
+            log.debug("No image writer for {}, skipping variants", filename);
+            return;
+        }
+        Resource original = storageService.loadAsResource(filename).orElse(null);
+        if (original == null) {
+            return;
+        }
+        try {
+            BufferedImage image;
+            try (InputStream inputStream = original.getInputStream()) {
+                image = decode(inputStream, filename);
+            }
+            if (image == null) {
+                log.debug("{} is not a decodable image, skipping variants", filename);
+                return;
+            }
+            for (PhotoSize size : PhotoSize.values()) {
+                String variantFilename = size.variantOf(filename);
+                // Deduplicated uploads may already have their variants
+                if (storageService.loadAsResource(variantFilename).isPresent()) {
+                    continue;
+                }
+                byte[] encoded = encode(resize(image, size.getWidth(), format), format);
+                storageService.store(new ByteArrayInputStream(encoded), variantFilename);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to generate variants for {}", filename, e);
+        }
+    }
+
+    // Reads the dimensions from the header before decoding, so a small file declaring a huge image
+    // can't allocate a huge raster; large originals are decoded subsampled near the widest variant
+    private BufferedImage decode(InputStream inputStream, String filename) throws IOException {
+        try (ImageInputStream imageStream = ImageIO.createImageInputStream(inputStream)) {
+            Iterator<ImageReader> readers = imageStream == null ? null : ImageIO.getImageReaders(imageStream);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageStream, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    log.warn("{} is {}x{} pixels, over the variant limit, skipping variants", filename, width, height);
+                    return null;
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, width / MAX_VARIANT_WIDTH);
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage resize(BufferedImage image, int maxWidth, String format) {
+        // Never upscale, narrower originals are re-encoded at their own size
+        int width = Math.min(maxWidth, image.getWidth());
+        int height = Math.max(1, Math.round((float) image.getHeight() * width / image.getWidth()));
+        // JPEG has no alpha channel
+        boolean opaque = format.equalsIgnoreCase("jpg") || format.equalsIgnoreCase("jpeg");
+        BufferedImage resized =
+                new BufferedImage(width, height, opaque ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        if (!ImageIO.write(image, format.toLowerCase(Locale.ROOT), outputStream)) {
+            throw new IOException("No image writer for format " + format);
+        }
+        return outputStream.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,108 @@
+package com.mtech.restaurant.services.impl;
+
+import co.elastic.clients.elasticsearch._types.DistanceUnit;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
+import co.elastic.clients.elasticsearch._types.aggregations.AggregationRange;
+import com.mtech.restaurant.domain.FacetBucket;
+import com.mtech.restaurant.domain.RestaurantFacets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
+import org.springframework.data.elasticsearch.core.AggregationsContainer;
+
+/**
+ * Facet aggregations that ride along with a restaurant search: cuisine terms, an
+ * averageRating histogram and, when the search has a location, distance rings around it.
+ * They run over the same query as the hits, so the counts always describe the filtered results.
+ */
+final class RestaurantFacetAggregations {
+    private static final String CUISINES = "cuisines";
+    private static final String RATINGS = "ratings";
+    private static final String DISTANCES = "distances";
+    private static final double RATING_INTERVAL = 1.0;
+
+    private RestaurantFacetAggregations() {}
+
+    static Map<String, Aggregation> build(
+            Float latitude, Float longitude, Float radius, int cuisineCount, double[] distanceRingsKm) {
+        Map<String, Aggregation> aggregations = new LinkedHashMap<>();
+        aggregations.put(
+                CUISINES, Aggregation.of(a -> a.terms(t -> t.field("cuisineType.keyword").size(cuisineCount))));
+        // Empty buckets are kept so the UI always gets the full 0-5 scale
+        aggregations.put(RATINGS, Aggregation.of(a -> a.histogram(h -> h.field("averageRating")
+                .interval(RATING_INTERVAL)
+                .minDocCount(0)
+                .extendedBounds(b -> b.min(0.0).max(5.0)))));
+        if (latitude != null && longitude != null) {
+            List<AggregationRange> rings = rings(radius, distanceRingsKm);
+            aggregations.put(DISTANCES, Aggregation.of(a -> a.geoDistance(g -> g.field("geoLocation")
+                    .origin(o -> o.latlon(ll -> ll.lat(latitude).lon(longitude)))
+                    .unit(DistanceUnit.Kilometers)
+                    .ranges(rings))));
+        }
+        return aggregations;
+    }
+
+    static RestaurantFacets read(AggregationsContainer<?> container) {
+        Map<String, Aggregate> aggregates = new LinkedHashMap<>();
+        if (container instanceof ElasticsearchAggregations elasticsearchAggregations) {
+            for (ElasticsearchAggregation aggregation : elasticsearchAggregations.aggregations()) {
+                aggregates.put(
+                        aggregation.aggregation().getName(), aggregation.aggregation().getAggregate());
+            }
+        }
+        List<FacetBucket> cuisines = new ArrayList<>();
+        Aggregate cuisineAggregate = aggregates.get(CUISINES);
+        // Until CuisineKeywordMigration has added cuisineType.keyword, the field is reported as unmapped
+        if (cuisineAggregate != null && cuisineAggregate.isSterms()) {
+            cuisineAggregate.sterms().buckets().array().forEach(bucket -> cuisines.add(FacetBucket.builder()
+                    .key(bucket.key().stringValue())
+                    .count(bucket.docCount())
+                    .build()));
+        }
+        List<FacetBucket> ratings = new ArrayList<>();
+        Aggregate ratingAggregate = aggregates.get(RATINGS);
+        if (ratingAggregate != null) {
+            ratingAggregate.histogram().buckets().array().forEach(bucket -> ratings.add(FacetBucket.builder()
+                    .key(String.valueOf(bucket.key()))
+                    .from(bucket.key())
+                    .to(bucket.key() + RATING_INTERVAL)
+                    .count(bucket.docCount())
+                    .build()));
+        }
+        List<FacetBucket> distances = new ArrayList<>();
+        Aggregate distanceAggregate = aggregates.get(DISTANCES);
+        if (distanceAggregate != null) {
+            distanceAggregate.geoDistance().buckets().array().forEach(bucket -> distances.add(FacetBucket.builder()
+                    .key(bucket.key())
+                    .from(bucket.from())
+                    .to(bucket.to())
+                    .count(bucket.docCount())
+                    .build()));
+        }
+        return RestaurantFacets.builder()
+                .cuisines(cuisines)
+                .ratings(ratings)
+                .distances(distances)
+                .build();
+    }
+
+    // Consecutive rings out to the search radius; rings starting beyond it would always be empty
+    private static List<AggregationRange> rings(Float radius, double[] distanceRingsKm) {
+        List<AggregationRange> rings = new ArrayList<>();
+        double from = 0;
+        for (double to : distanceRingsKm) {
+            if (radius != null && from >= radius) {
+                break;
+            }
+            double ringFrom = from;
+            rings.add(AggregationRange.of(r -> r.from(ringFrom).to(to)));
+            from = to;
+        }
+        return rings;
+    }
+}
@@ -0,0 +1,76 @@
+package com.mtech.restaurant.services.impl;
+
+import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+
+/**
+ * Builds the restaurant search query from any combination of text, minimum rating, location
+ * and opening time. Text matching is the only scoring clause; the rest go in filter context,
+ * where Elasticsearch skips scoring and can cache them.
+ */
+final class RestaurantSearchQueries {
+    private RestaurantSearchQueries() {}
+
+    static Query search(
+            String query, Float minRating, Float latitude, Float longitude, Float radius, Integer openAtMinute) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        boolean hasCriteria = false;
+        if (query != null && !query.trim().isEmpty()) {
+            bool.must(text(query));
+            hasCriteria = true;
+        }
+        if (minRating != null) {
+            bool.filter(minRating(minRating));
+            hasCriteria = true;
+        }
+        if (latitude != null && longitude != null && radius != null) {
+            bool.filter(withinRadius(latitude, longitude, radius));
+            hasCriteria = true;
+        }
+        if (openAtMinute != null) {
+            bool.filter(openAt(openAtMinute));
+            hasCriteria = true;
+        }
+        if (!hasCriteria) {
+            return Query.of(q -> q.matchAll(m -> m));
+        }
+        return Query.of(q -> q.bool(bool.build()));
+    }
+
+    // Map viewport search; rating and box are both filters, so nothing is scored
+    static Query withinBounds(
+            float minLatitude, float minLongitude, float maxLatitude, float maxLongitude, Float minRating) {
+        BoolQuery.Builder bool = new BoolQuery.Builder();
+        bool.filter(Query.of(q -> q.geoBoundingBox(g -> g.field("geoLocation")
+                .boundingBox(b -> b.tlbr(t -> t.topLeft(tl -> tl.latlon(ll -> ll.lat(maxLatitude).lon(minLongitude)))
+                        .bottomRight(br -> br.latlon(ll -> ll.lat(minLatitude).lon(maxLongitude))))))));
+        if (minRating != null) {
+            bool.filter(minRating(minRating));
+        }
+        return Query.of(q -> q.bool(bool.build()));
+    }
+
+    // Fuzzy match against the name or the cuisine
+    private static Query text(String query) {
+        return Query.of(q -> q.bool(b -> b.should(s -> s.fuzzy(f -> f.field("name").value(query).fuzziness("AUTO")))
+                .should(s -> s.fuzzy(f -> f.field("cuisineType").value(query).fuzziness("AUTO")))
+                .minimumShouldMatch("1")));
+    }
+
+    private static Query minRating(float minRating) {
+        return Query.of(q -> q.range(r -> r.number(n -> n.field("averageRating").gte((double) minRating))));
+    }
+
+    // Matches restaurants with an opening interval that contains the minute of the week
+    private static Query openAt(int minuteOfWeek) {
+        return Query.of(q -> q.range(r -> r.number(n -> n.field("openingIntervals")
+                .gte((double) minuteOfWeek)
+                .lte((double) minuteOfWeek))));
+    }
+
+    private static Query withinRadius(float latitude, float longitude, float radiusKm) {
+        return Query.of(q -> q.geoDistance(g -> g.field("geoLocation")
+                .distance(radiusKm + "km")
+                .location(l -> l.latlon(ll -> ll.lat(latitude).lon(longitude)))));
+    }
+}
@@ -1,32 +1,94 @@
 package com.mtech.restaurant.services.impl;
 
+import co.elastic.clients.elasticsearch._types.DistanceUnit;
+import co.elastic.clients.elasticsearch._types.SortOptions;
+import co.elastic.clients.elasticsearch._types.SortOrder;
+import co.elastic.clients.elasticsearch._types.query_dsl.Operator;
+import co.elastic.clients.elasticsearch._types.query_dsl.TextQueryType;
+import com.mtech.restaurant.config.CacheConfig;
+import com.mtech.restaurant.domain.CursorPage;
+import com.mtech.restaurant.domain.FacetedPage;
 import com.mtech.restaurant.domain.GeoLocation;
+import com.mtech.restaurant.domain.OpeningIntervals;
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
 import com.mtech.restaurant.domain.RestaurantCreateUpdateRequest;
+import com.mtech.restaurant.domain.RestaurantFacets;
+import com.mtech.restaurant.domain.RestaurantPin;
+import com.mtech.restaurant.domain.RestaurantSuggestion;
 import com.mtech.restaurant.domain.entities.Address;
 import com.mtech.restaurant.domain.entities.Photo;
 import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.domain.entities.Review;
 import com.mtech.restaurant.exceptions.RestaurantNotFoundException;
 import com.mtech.restaurant.repositories.RestaurantRepository;
+import com.mtech.restaurant.repositories.ReviewRepository;
 import com.mtech.restaurant.services.GeoLocationService;
+import com.mtech.restaurant.services.PhotoService;
 import com.mtech.restaurant.services.RestaurantService;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
 import org.springframework.data.elasticsearch.core.geo.GeoPoint;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class RestaurantServiceImpl implements RestaurantService {
+    // Search results only fetch the fields needed for RestaurantSummaryDto
+    private static final String[] SUMMARY_FIELDS = {
+        "name", "cuisineType", "averageRating", "totalReviews", "address", "photos"
+    };
+    private static final String[] PIN_FIELDS = {"name", "cuisineType", "averageRating", "geoLocation"};
+    private static final String[] SUGGESTION_FIELDS = {"name", "cuisineType"};
+    private static final String UNFILTERED_FACETS_KEY = "all";
 
     private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
     private final GeoLocationService geoLocationService;
+    private final OptimisticWriteRetrier optimisticWriteRetrier;
+    private final ElasticsearchOperations elasticsearchOperations;
+    private final SingleFlight<String, Optional<Restaurant>> restaurantLoads;
+    private final GeoGridIndex geoGridIndex;
+    private final RestaurantSuggestIndex restaurantSuggestIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CacheManager cacheManager;
+    private final PhotoService photoService;
+
+    @Value("${app.search.facets.cuisine-count:20}")
+    private int facetCuisineCount;
+
+    @Value("${app.search.facets.distance-rings-km:1,2,5,10,25}")
+    private double[] facetDistanceRingsKm;
 
     @Override
+    @Caching(
+            evict = {
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_SEARCH_CACHE, allEntries = true),
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_FACETS_CACHE, allEntries = true)
+            })
     public Restaurant createRestaurant(RestaurantCreateUpdateRequest request) {
 
         Address address = request.getAddress();
@@ -48,45 +110,147 @@ public class RestaurantServiceImpl implements RestaurantService {
                 .geoLocation(geoPoint)
                 .photos(photos)
                 .operatingHours(request.getOperatingHours())
+                .openingIntervals(OpeningIntervals.of(request.getOperatingHours()))
                 .averageRating(0f)
+                .totalReviews(0)
+                .ratingSum(0L)
                 .build();
 
-        return restaurantRepository.save(restaurant);
+        Restaurant savedRestaurant = restaurantRepository.save(restaurant);
+        eventPublisher.publishEvent(RestaurantChangedEvent.saved(savedRestaurant));
+        photoService.retainPhotos(savedRestaurant.getPhotos());
+        return savedRestaurant;
     }
 
     @Override
     public Page<Restaurant> searchRestaurants(
-            String query, Float minRating, Float latitude, Float longitude, Float radius, Pageable pageable) {
-        // If just filtering my min rating
-        if (null != minRating && (null == query || query.isEmpty())) {
-            return restaurantRepository.findByAverageRatingGreaterThanEqual(minRating, pageable);
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Pageable pageable) {
+        SearchHits<Restaurant> hits = elasticsearchOperations.search(
+                summarySearch(query, minRating, latitude, longitude, radius, openAtMinute, pageable)
+                        .build(),
+                Restaurant.class);
+        return new PageImpl<>(contentOf(hits), pageable, hits.getTotalHits());
+    }
+
+    @Override
+    public FacetedPage<Restaurant, RestaurantFacets> searchRestaurantsWithFacets(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Pageable pageable) {
+        // Facets of the whole catalogue are shared by every unfiltered search and change slowly
+        boolean unfiltered = (query == null || query.isBlank())
+                && minRating == null
+                && (latitude == null || longitude == null)
+                && openAtMinute == null;
+        Cache facetsCache = Objects.requireNonNull(cacheManager.getCache(CacheConfig.RESTAURANT_FACETS_CACHE));
+        RestaurantFacets cachedFacets =
+                unfiltered ? facetsCache.get(UNFILTERED_FACETS_KEY, RestaurantFacets.class) : null;
+        NativeQueryBuilder searchQuery =
+                summarySearch(query, minRating, latitude, longitude, radius, openAtMinute, pageable);
+        if (cachedFacets == null) {
+            RestaurantFacetAggregations.build(latitude, longitude, radius, facetCuisineCount, facetDistanceRingsKm)
+                    .forEach(searchQuery::withAggregation);
+        }
+        SearchHits<Restaurant> hits = elasticsearchOperations.search(searchQuery.build(), Restaurant.class);
+        RestaurantFacets facets = cachedFacets;
+        if (facets == null) {
+            facets = RestaurantFacetAggregations.read(hits.getAggregations());
+            if (unfiltered) {
+                facetsCache.put(UNFILTERED_FACETS_KEY, facets);
+            }
+        }
+        return new FacetedPage<>(contentOf(hits), pageable, hits.getTotalHits(), facets);
+    }
+
+    // Text, rating and location combine freely in a single request
+    private static NativeQueryBuilder summarySearch(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Pageable pageable) {
+        return NativeQuery.builder()
+                .withQuery(RestaurantSearchQueries.search(query, minRating, latitude, longitude, radius, openAtMinute))
+                .withSourceFilter(new FetchSourceFilterBuilder()
+                        .withIncludes(SUMMARY_FIELDS)
+                        .build())
+                .withPageable(pageable);
+    }
+
+    private static List<Restaurant> contentOf(SearchHits<Restaurant> hits) {
+        return hits.getSearchHits().stream().map(SearchHit::getContent).toList();
+    }
+
+    @Override
+    public CursorPage<Restaurant> scrollRestaurants(
+            String query,
+            Float minRating,
+            Float latitude,
+            Float longitude,
+            Float radius,
+            Integer openAtMinute,
+            Sort sort,
+            String cursor,
+            int size) {
+        // Requested order, or relevance, followed by id as a unique tiebreaker
+        List<SortOptions> sortOptions = new ArrayList<>();
+        if (sort.isSorted()) {
+            sort.forEach(order -> sortOptions.add(SortOptions.of(s -> s.field(f -> f.field(order.getProperty())
+                    .order(order.isAscending() ? SortOrder.Asc : SortOrder.Desc)))));
+        } else {
+            sortOptions.add(SortOptions.of(s -> s.score(sc -> sc.order(SortOrder.Desc))));
         }
-        // Normalize min rating to be used in other queries
-        Float searchMinRating = minRating == null ? 0f : minRating;
-        // If there's a text, search query
-        if (query != null && !query.trim().isEmpty()) {
-            return restaurantRepository.findByQueryAndMinRating(query, searchMinRating, pageable);
+        sortOptions.add(SortOptions.of(s -> s.field(f -> f.field("id").order(SortOrder.Asc))));
+        // Fetch one extra hit to tell whether another page exists
+        NativeQueryBuilder queryBuilder = NativeQuery.builder()
+                .withQuery(RestaurantSearchQueries.search(query, minRating, latitude, longitude, radius, openAtMinute))
+                .withSort(sortOptions)
+                .withSourceFilter(new FetchSourceFilterBuilder()
+                        .withIncludes(SUMMARY_FIELDS)
+                        .build())
+                .withPageable(PageRequest.of(0, size + 1))
+                .withTrackTotalHits(false);
+        if (cursor != null && !cursor.isBlank()) {
+            queryBuilder.withSearchAfter(SearchCursorCodec.decode(cursor));
         }
-        // If there's a location search
-        if (latitude != null && longitude != null && radius != null) {
-            return restaurantRepository.findByLocationNear(latitude, longitude, radius, pageable);
+        List<SearchHit<Restaurant>> hits =
+                elasticsearchOperations.search(queryBuilder.build(), Restaurant.class).getSearchHits();
+        if (hits.size() <= size) {
+            return new CursorPage<>(hits.stream().map(SearchHit::getContent).toList(), null);
         }
-        // Otherwise we'll perform a non-location search
-        return restaurantRepository.findAll(pageable);
+        List<SearchHit<Restaurant>> page = hits.subList(0, size);
+        String nextCursor = SearchCursorCodec.encode(page.get(size - 1).getSortValues());
+        return new CursorPage<>(page.stream().map(SearchHit::getContent).toList(), nextCursor);
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id", unless = "#result == null")
     public Optional<Restaurant> getRestaurant(String id) {
-        // Delegate to the repository to fetch the restaurant by ID
-        Optional<Restaurant> optionalRestaurant = restaurantRepository.findById(id);
+        // Delegate to the repository, sharing the lookup with concurrent callers for the same ID
+        Optional<Restaurant> optionalRestaurant = restaurantLoads.execute(id, () -> restaurantRepository.findById(id));
         return optionalRestaurant;
     }
 
     @Override
+    @Caching(
+            evict = {
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id"),
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_SEARCH_CACHE, allEntries = true),
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_FACETS_CACHE, allEntries = true)
+            })
     public Restaurant updateRestaurant(String id, RestaurantCreateUpdateRequest restaurantCreateUpdateRequest) {
-        // First, verify the restaurant exists
-        Restaurant existingRestaurant = getRestaurant(id)
-                .orElseThrow(() -> new RestaurantNotFoundException("Restaurant with " + id + " does not exist: "));
         // Get new geo coordinates based on the updated address
         GeoLocation newGeoLocation = geoLocationService.geoLocate(restaurantCreateUpdateRequest.getAddress());
         GeoPoint newGeoPoint = new GeoPoint(newGeoLocation.getLatitude(), newGeoLocation.getLongitude());
@@ -97,19 +261,139 @@ public class RestaurantServiceImpl implements RestaurantService {
                         .uploadDate(LocalDateTime.now())
                         .build())
                 .collect(Collectors.toList());
-        // Update all fields except averageRating
-        existingRestaurant.setName(restaurantCreateUpdateRequest.getName());
-        existingRestaurant.setCuisineType(restaurantCreateUpdateRequest.getCuisineType());
-        existingRestaurant.setContactInformation(restaurantCreateUpdateRequest.getContactInformation());
-        existingRestaurant.setAddress(restaurantCreateUpdateRequest.getAddress());
-        existingRestaurant.setGeoLocation(newGeoPoint);
-        existingRestaurant.setOperatingHours(restaurantCreateUpdateRequest.getOperatingHours());
-        existingRestaurant.setPhotos(photos);
-        return restaurantRepository.save(existingRestaurant);
+        List<Photo> previousPhotos = new ArrayList<>();
+        // Re-read on conflict so concurrent rating updates are never overwritten
+        Restaurant savedRestaurant = optimisticWriteRetrier.execute("updateRestaurant", () -> {
+            // First, verify the restaurant exists
+            Restaurant existingRestaurant = restaurantRepository
+                    .findById(id)
+                    .orElseThrow(() -> new RestaurantNotFoundException("Restaurant with " + id + " does not exist: "));
+            // Update all fields except the rating stats
+            existingRestaurant.setName(restaurantCreateUpdateRequest.getName());
+            existingRestaurant.setCuisineType(restaurantCreateUpdateRequest.getCuisineType());
+            existingRestaurant.setContactInformation(restaurantCreateUpdateRequest.getContactInformation());
+            existingRestaurant.setAddress(restaurantCreateUpdateRequest.getAddress());
+            existingRestaurant.setGeoLocation(newGeoPoint);
+            existingRestaurant.setOperatingHours(restaurantCreateUpdateRequest.getOperatingHours());
+            existingRestaurant.setOpeningIntervals(
+                    OpeningIntervals.of(restaurantCreateUpdateRequest.getOperatingHours()));
+            previousPhotos.clear();
+            if (existingRestaurant.getPhotos() != null) {
+                previousPhotos.addAll(existingRestaurant.getPhotos());
+            }
+            existingRestaurant.setPhotos(photos);
+            // Save conditioned on the seq_no/primary_term that was read
+            return restaurantRepository.save(existingRestaurant);
+        });
+        eventPublisher.publishEvent(RestaurantChangedEvent.saved(savedRestaurant));
+        // Photos the edit added are now referenced by this restaurant, the ones it dropped no longer
+        photoService.retainPhotos(PhotoLists.added(previousPhotos, savedRestaurant.getPhotos()));
+        photoService.releasePhotos(PhotoLists.removed(previousPhotos, savedRestaurant.getPhotos()));
+        return savedRestaurant;
     }
 
     @Override
+    @Caching(
+            evict = {
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#id"),
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_SEARCH_CACHE, allEntries = true),
+                @CacheEvict(cacheNames = CacheConfig.RESTAURANT_FACETS_CACHE, allEntries = true)
+            })
     public void deleteRestaurant(String id) {
+        // Collected before the deletes, which leave nothing to read the photo references from
+        List<Photo> photos = new ArrayList<>();
+        restaurantRepository.findById(id).map(Restaurant::getPhotos).ifPresent(photos::addAll);
+        try (Stream<Review> reviews = reviewRepository.findAllByRestaurantId(id)) {
+            reviews.map(Review::getPhotos).filter(Objects::nonNull).forEach(photos::addAll);
+        }
         restaurantRepository.deleteById(id);
+        // Reviews live in their own index, so remove them alongside the restaurant
+        reviewRepository.deleteByRestaurantId(id);
+        eventPublisher.publishEvent(RestaurantChangedEvent.deleted(id));
+        photoService.releasePhotos(photos);
+    }
+
+    @Override
+    public List<RestaurantPin> findNearby(
+            float latitude, float longitude, float radius, Float minRating, int limit) {
+        if (geoGridIndex.isReady()) {
+            return geoGridIndex.nearby(latitude, longitude, radius, minRating, limit);
+        }
+        // Cold or disabled grid: the same search through Elasticsearch, nearest first
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(RestaurantSearchQueries.search(null, minRating, latitude, longitude, radius, null))
+                .withSort(SortOptions.of(s -> s.geoDistance(g -> g.field("geoLocation")
+                        .location(l -> l.latlon(ll -> ll.lat(latitude).lon(longitude)))
+                        .unit(DistanceUnit.Kilometers)
+                        .order(SortOrder.Asc))))
+                .withSourceFilter(
+                        new FetchSourceFilterBuilder().withIncludes(PIN_FIELDS).build())
+                .withPageable(PageRequest.of(0, limit))
+                .withTrackTotalHits(false)
+                .build();
+        return elasticsearchOperations.search(query, Restaurant.class).getSearchHits().stream()
+                .map(hit -> toPin(hit.getContent(), ((Number) hit.getSortValues().get(0)).doubleValue()))
+                .toList();
+    }
+
+    @Override
+    public List<RestaurantPin> findWithin(
+            float minLatitude, float minLongitude, float maxLatitude, float maxLongitude, Float minRating, int limit) {
+        if (geoGridIndex.isReady()) {
+            return geoGridIndex.within(minLatitude, minLongitude, maxLatitude, maxLongitude, minRating, limit);
+        }
+        // Cold or disabled grid: the same search through Elasticsearch, best rated first
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(RestaurantSearchQueries.withinBounds(
+                        minLatitude, minLongitude, maxLatitude, maxLongitude, minRating))
+                .withSort(SortOptions.of(s -> s.field(f -> f.field("averageRating").order(SortOrder.Desc))))
+                .withSourceFilter(
+                        new FetchSourceFilterBuilder().withIncludes(PIN_FIELDS).build())
+                .withPageable(PageRequest.of(0, limit))
+                .withTrackTotalHits(false)
+                .build();
+        return elasticsearchOperations.search(query, Restaurant.class).getSearchHits().stream()
+                .map(hit -> toPin(hit.getContent(), null))
+                .toList();
+    }
+
+    @Override
+    public List<RestaurantSuggestion> suggestRestaurants(String prefix, int limit) {
+        if (restaurantSuggestIndex.isReady()) {
+            return restaurantSuggestIndex.suggest(prefix, limit);
+        }
+        // Cold index: prefix match through Elasticsearch, most reviewed first
+        NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q.multiMatch(m -> m.query(prefix)
+                        .type(TextQueryType.BoolPrefix)
+                        .operator(Operator.And)
+                        .fields("name", "cuisineType")))
+                .withSort(SortOptions.of(s -> s.field(f -> f.field("totalReviews").order(SortOrder.Desc))))
+                .withSourceFilter(new FetchSourceFilterBuilder()
+                        .withIncludes(SUGGESTION_FIELDS)
+                        .build())
+                .withPageable(PageRequest.of(0, limit))
+                .withTrackTotalHits(false)
+                .build();
+        return elasticsearchOperations.search(query, Restaurant.class).getSearchHits().stream()
+                .map(SearchHit::getContent)
+                .map(restaurant -> RestaurantSuggestion.builder()
+                        .id(restaurant.getId())
+                        .name(restaurant.getName())
+                        .cuisineType(restaurant.getCuisineType())
+                        .build())
+                .toList();
+    }
+
+    private static RestaurantPin toPin(Restaurant restaurant, Double distanceKm) {
+        return RestaurantPin.builder()
+                .id(restaurant.getId())
+                .name(restaurant.getName())
+                .cuisineType(restaurant.getCuisineType())
+                .averageRating(restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating())
+                .latitude(restaurant.getGeoLocation().getLat())
+                .longitude(restaurant.getGeoLocation().getLon())
+                .distanceKm(distanceKm)
+                .build();
     }
 }
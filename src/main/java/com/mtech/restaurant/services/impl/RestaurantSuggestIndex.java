@@ -0,0 +1,361 @@
+package com.mtech.restaurant.services.impl;
+
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
+import com.mtech.restaurant.domain.RestaurantSuggestion;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHitsIterator;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prefix index over the words of restaurant names and cuisine types for typeahead. Each word is
+ * a key in a sorted map, so the matches of a prefix are a range scan, ranked by popularity
+ * (review count, then rating). The best {@value #TOP_K} matches of each prefix are kept once a
+ * prefix has been looked up, so short prefixes matching most of the index don't scan it on
+ * every keystroke.
+ *
+ * <p>Restaurant and review writes update the index through {@link RestaurantChangedEvent}s; a
+ * change older than one already applied to a restaurant is skipped. It is
+ * built from Elasticsearch in the background after startup and rebuilt periodically, which picks
+ * up changes made through other instances.
+ */
+@Component
+@Slf4j
+public class RestaurantSuggestIndex {
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    // Sorts below every character that can appear in a word
+    private static final char KEY_SEPARATOR = '\u0000';
+    private static final String[] SUGGEST_FIELDS = {"name", "cuisineType", "averageRating", "totalReviews"};
+    // Most popular first; the id keeps the order total
+    private static final Comparator<Entry> BY_POPULARITY = Comparator.comparingInt(Entry::totalReviews)
+            .thenComparingDouble(Entry::averageRating)
+            .reversed()
+            .thenComparing(Entry::id);
+    // Longest list a request may ask for; RestaurantController caps the limit at the same value
+    static final int TOP_K = 20;
+
+    private final ElasticsearchOperations elasticsearchOperations;
+    // "word\0restaurantId" -> entry, one key per distinct word of the restaurant
+    private final ConcurrentSkipListMap<String, Entry> words = new ConcurrentSkipListMap<>();
+    private final Map<String, Entry> restaurants = new ConcurrentHashMap<>();
+    // Prefix -> its best TOP_K entries, filled on first lookup and kept current by writes; a list
+    // shorter than TOP_K holds every match. Only prefixes of indexed words get a list
+    private final Map<String, List<Entry>> topByPrefix = new ConcurrentHashMap<>();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private volatile boolean ready;
+    // Restaurants written while a rebuild scans; the scan's older copy of them is skipped
+    private final Set<String> changedDuringRebuild = ConcurrentHashMap.newKeySet();
+
+    public RestaurantSuggestIndex(ElasticsearchOperations elasticsearchOperations) {
+        this.elasticsearchOperations = elasticsearchOperations;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    // Earlier words of the prefix must match whole words, the last one may be partial
+    public List<RestaurantSuggestion> suggest(String prefix, int limit) {
+        String[] prefixWords = words(prefix);
+        if (prefixWords.length == 0) {
+            return List.of();
+        }
+        List<Entry> top = topFor(prefixWords[prefixWords.length - 1]);
+        List<Entry> matches = top.stream()
+                .filter(entry -> matchesLeadingWords(entry, prefixWords))
+                .limit(limit)
+                .toList();
+        // The best matches of the last word may all miss the leading words; look among the
+        // restaurants that have the first word instead
+        if (matches.size() < limit && top.size() >= TOP_K) {
+            matches = bestWithWord(prefixWords, limit);
+        }
+        return matches.stream()
+                .map(entry -> RestaurantSuggestion.builder()
+                        .id(entry.id())
+                        .name(entry.name())
+                        .cuisineType(entry.cuisineType())
+                        .build())
+                .toList();
+    }
+
+    private List<Entry> topFor(String prefix) {
+        List<Entry> top = topByPrefix.get(prefix);
+        return top != null ? top : computeTop(prefix);
+    }
+
+    // Under the write lock, so no change slips in between the scan and storing the list
+    private synchronized List<Entry> computeTop(String prefix) {
+        List<Entry> top = topByPrefix.get(prefix);
+        if (top != null) {
+            return top;
+        }
+        top = best(words.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values(), TOP_K, entry -> true);
+        if (!top.isEmpty()) {
+            topByPrefix.put(prefix, top);
+        }
+        return top;
+    }
+
+    private List<Entry> bestWithWord(String[] prefixWords, int limit) {
+        String first = prefixWords[0];
+        String last = prefixWords[prefixWords.length - 1];
+        return best(
+                words.subMap(key(first, ""), true, key(first, String.valueOf(Character.MAX_VALUE)), false)
+                        .values(),
+                limit,
+                entry -> matchesLeadingWords(entry, prefixWords) && hasWordStartingWith(entry, last));
+    }
+
+    // The best `limit` distinct restaurants among the entries that pass the filter
+    private static List<Entry> best(Collection<Entry> entries, int limit, Predicate<Entry> filter) {
+        Set<String> seen = new HashSet<>();
+        // Max-heap by popularity, so the head is the worst match kept so far
+        PriorityQueue<Entry> best = new PriorityQueue<>(limit + 1, BY_POPULARITY.reversed());
+        for (Entry entry : entries) {
+            if (!seen.add(entry.id()) || !filter.test(entry)) {
+                continue;
+            }
+            best.add(entry);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        return best.stream().sorted(BY_POPULARITY).toList();
+    }
+
+    @EventListener
+    public void onRestaurantChanged(RestaurantChangedEvent event) {
+        if (rebuilding.get()) {
+            changedDuringRebuild.add(event.getRestaurantId());
+        }
+        if (event.isDeleted()) {
+            remove(event.getRestaurantId());
+        } else if (event.isRated()) {
+            rate(event);
+        } else {
+            put(event);
+        }
+    }
+
+    // Built off the startup thread, so a large index doesn't hold up the application becoming ready
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildAfterStartup() {
+        Thread.ofPlatform().name("suggest-index-build").daemon().start(this::rebuild);
+    }
+
+    @Scheduled(
+            fixedDelayString = "${app.search.suggest.refresh-interval:PT15M}",
+            initialDelayString = "${app.search.suggest.refresh-interval:PT15M}")
+    public void rebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Set<String> scanned = new HashSet<>();
+            NativeQuery query = NativeQuery.builder()
+                    .withQuery(q -> q.matchAll(m -> m))
+                    .withSourceFilter(
+                            new FetchSourceFilterBuilder().withIncludes(SUGGEST_FIELDS).build())
+                    .withSeqNoPrimaryTerm(true)
+                    .build();
+            try (SearchHitsIterator<Restaurant> hits =
+                    elasticsearchOperations.searchForStream(query, Restaurant.class)) {
+                hits.forEachRemaining(hit -> {
+                    Restaurant restaurant = hit.getContent();
+                    scanned.add(restaurant.getId());
+                    if (!changedDuringRebuild.contains(restaurant.getId())) {
+                        put(RestaurantChangedEvent.saved(restaurant));
+                    }
+                });
+            }
+            // Anything the scan didn't see was deleted without an event reaching this instance
+            restaurants.keySet().stream()
+                    .filter(id -> !scanned.contains(id) && !changedDuringRebuild.contains(id))
+                    .toList()
+                    .forEach(this::remove);
+            ready = true;
+            log.info("Built suggest index with {} restaurants", restaurants.size());
+        } catch (RuntimeException e) {
+            log.error("Building the suggest index failed, suggestions will keep using Elasticsearch", e);
+        } finally {
+            changedDuringRebuild.clear();
+            rebuilding.set(false);
+        }
+    }
+
+    private synchronized void put(RestaurantChangedEvent event) {
+        Restaurant restaurant = event.getRestaurant();
+        if (restaurant.getId() == null) {
+            return;
+        }
+        Entry previous = restaurants.get(restaurant.getId());
+        if (previous != null && !event.supersedes(previous.sequenceNumber())) {
+            return;
+        }
+        Entry entry = new Entry(
+                restaurant.getId(),
+                restaurant.getName(),
+                restaurant.getCuisineType(),
+                restaurant.getTotalReviews() == null ? 0 : restaurant.getTotalReviews(),
+                restaurant.getAverageRating() == null ? 0f : restaurant.getAverageRating(),
+                distinctWords(Stream.of(restaurant.getName(), restaurant.getCuisineType())
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.joining(" "))),
+                event.getSequenceNumber());
+        restaurants.put(entry.id(), entry);
+        if (previous != null) {
+            for (String word : previous.words()) {
+                words.remove(key(word, previous.id()));
+            }
+        }
+        for (String word : entry.words()) {
+            words.put(key(word, entry.id()), entry);
+        }
+        updateTopLists(previous, entry);
+    }
+
+    // Only the ranking changes, so the words keep their keys and point at the new entry
+    private synchronized void rate(RestaurantChangedEvent event) {
+        Entry previous = restaurants.get(event.getRestaurantId());
+        if (previous == null || !event.supersedes(previous.sequenceNumber())) {
+            return;
+        }
+        Entry entry = new Entry(
+                previous.id(),
+                previous.name(),
+                previous.cuisineType(),
+                event.getRating().getTotalReviews(),
+                event.getRating().getAverageRating(),
+                previous.words(),
+                event.getSequenceNumber());
+        restaurants.put(entry.id(), entry);
+        for (String word : entry.words()) {
+            words.put(key(word, entry.id()), entry);
+        }
+        updateTopLists(previous, entry);
+    }
+
+    private synchronized void remove(String restaurantId) {
+        Entry previous = restaurants.remove(restaurantId);
+        if (previous != null) {
+            for (String word : previous.words()) {
+                words.remove(key(word, restaurantId));
+            }
+            updateTopLists(previous, null);
+        }
+    }
+
+    // Brings the kept lists of every prefix of the old and new words up to date
+    private void updateTopLists(Entry previous, Entry current) {
+        Set<String> prefixes = new HashSet<>();
+        for (Entry entry : new Entry[] {previous, current}) {
+            if (entry != null) {
+                for (String word : entry.words()) {
+                    for (int length = 1; length <= word.length(); length++) {
+                        prefixes.add(word.substring(0, length));
+                    }
+                }
+            }
+        }
+        for (String prefix : prefixes) {
+            List<Entry> top = topByPrefix.get(prefix);
+            if (top == null) {
+                continue;
+            }
+            List<Entry> updated = updatedTop(top, prefix, previous, current);
+            if (updated == null || updated.isEmpty()) {
+                topByPrefix.remove(prefix);
+            } else {
+                topByPrefix.put(prefix, updated);
+            }
+        }
+    }
+
+    // Null when the list can't be updated without a scan; it is then recomputed on the next lookup
+    private static List<Entry> updatedTop(List<Entry> top, String prefix, Entry previous, Entry current) {
+        List<Entry> updated = new ArrayList<>(top);
+        boolean complete = top.size() < TOP_K;
+        boolean removed = previous != null && updated.removeIf(entry -> entry.id().equals(previous.id()));
+        boolean matches = current != null && hasWordStartingWith(current, prefix);
+        // A full list that lost an entry, or kept it with less popularity, may now miss one it didn't hold
+        if (removed && !complete && (!matches || BY_POPULARITY.compare(current, previous) > 0)) {
+            return null;
+        }
+        if (matches) {
+            int index = Collections.binarySearch(updated, current, BY_POPULARITY);
+            updated.add(index < 0 ? -index - 1 : index, current);
+            if (updated.size() > TOP_K) {
+                updated.remove(updated.size() - 1);
+            }
+        }
+        return List.copyOf(updated);
+    }
+
+    private static boolean matchesLeadingWords(Entry entry, String[] prefixWords) {
+        for (int i = 0; i < prefixWords.length - 1; i++) {
+            if (Arrays.binarySearch(entry.words(), prefixWords[i]) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(Entry entry, String prefix) {
+        int index = Arrays.binarySearch(entry.words(), prefix);
+        int candidate = index < 0 ? -index - 1 : index;
+        return candidate < entry.words().length && entry.words()[candidate].startsWith(prefix);
+    }
+
+    private static String key(String word, String restaurantId) {
+        return word + KEY_SEPARATOR + restaurantId;
+    }
+
+    private static String[] words(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        return Arrays.stream(WORD_SEPARATOR.split(text.toLowerCase(Locale.ROOT)))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    // Sorted, so leading-word checks can binary search
+    private static String[] distinctWords(String text) {
+        return Arrays.stream(words(text)).distinct().sorted().toArray(String[]::new);
+    }
+
+    private record Entry(
+            String id,
+            String name,
+            String cuisineType,
+            int totalReviews,
+            float averageRating,
+            String[] words,
+            long sequenceNumber) {}
+}
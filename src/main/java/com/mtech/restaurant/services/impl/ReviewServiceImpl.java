@@ -1,5 +1,7 @@
 package com.mtech.restaurant.services.impl;
 
+import com.mtech.restaurant.config.CacheConfig;
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
 import com.mtech.restaurant.domain.ReviewCreateUpdateRequest;
 import com.mtech.restaurant.domain.entities.Photo;
 import com.mtech.restaurant.domain.entities.Restaurant;
@@ -8,13 +10,19 @@ import com.mtech.restaurant.domain.entities.User;
 import com.mtech.restaurant.exceptions.RestaurantNotFoundException;
 import com.mtech.restaurant.exceptions.ReviewNotAllowedException;
 import com.mtech.restaurant.repositories.RestaurantRepository;
+import com.mtech.restaurant.repositories.ReviewRepository;
+import com.mtech.restaurant.services.PhotoService;
+import com.mtech.restaurant.services.RestaurantService;
 import com.mtech.restaurant.services.ReviewService;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.elasticsearch.ResourceNotFoundException;
@@ -24,13 +32,21 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class ReviewServiceImpl implements ReviewService {
     private final RestaurantRepository restaurantRepository;
+    private final ReviewRepository reviewRepository;
+    private final RestaurantService restaurantService;
+    private final OptimisticWriteRetrier optimisticWriteRetrier;
+    private final PhotoService photoService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // A saved review together with the rating and photos it replaced
+    private record ReviewRevision(Review review, int previousRating, List<Photo> previousPhotos) {}
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId")
     public Review createReview(User author, String restaurantId, ReviewCreateUpdateRequest createReview) {
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
+        getRestaurantOrThrow(restaurantId);
         // Check if user has already reviewed this restaurant
-        boolean hasExistingReview = restaurant.getReviews().stream()
-                .anyMatch(r -> r.getWrittenBy().getId().equals(author.getId()));
+        boolean hasExistingReview = reviewRepository.existsByRestaurantIdAndWrittenById(restaurantId, author.getId());
         if (hasExistingReview) {
             throw new ReviewNotAllowedException("User has already reviewed this restaurant");
         }
@@ -46,7 +62,8 @@ public class ReviewServiceImpl implements ReviewService {
                 .collect(Collectors.toList());
         // Create review
         Review review = Review.builder()
-                .id(UUID.randomUUID().toString())
+                .id(reviewIdFor(restaurantId, author.getId()))
+                .restaurantId(restaurantId)
                 .content(createReview.getContent())
                 .rating(createReview.getRating())
                 .photos(photos)
@@ -54,123 +71,129 @@ public class ReviewServiceImpl implements ReviewService {
                 .lastEdited(now)
                 .writtenBy(author)
                 .build();
-        // Add review to restaurant
-        restaurant.getReviews().add(review);
-        // Update restaurant's average rating
-        updateRestaurantAverageRating(restaurant);
-        // Save restaurant with new review
-        Restaurant updatedRestaurant = restaurantRepository.save(restaurant);
+        // Create-only write, so of two racing requests from the same user exactly one succeeds
+        if (!reviewRepository.createIfAbsent(review)) {
+            throw new ReviewNotAllowedException("User has already reviewed this restaurant");
+        }
+        // Add the new rating to the restaurant's running totals
+        applyRatingDelta(restaurantId, review.getRating(), 1);
+        photoService.retainPhotos(review.getPhotos());
         // Return the newly created review
-        return updatedRestaurant.getReviews().stream()
-                .filter(r -> r.getDatePosted().equals(review.getDatePosted()))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Error retrieving created review"));
+        return review;
+    }
+
+    // Updates the running totals and tells the in-process indexes about the restaurant's new rating,
+    // taken from the update itself rather than a second read
+    private void applyRatingDelta(String restaurantId, int ratingDelta, int reviewCountDelta) {
+        restaurantRepository
+                .applyRatingDelta(restaurantId, ratingDelta, reviewCountDelta)
+                .ifPresent(rating -> eventPublisher.publishEvent(RestaurantChangedEvent.rated(restaurantId, rating)));
+    }
+
+    // One id per user and restaurant; reviews written before this carry random UUIDs
+    private static String reviewIdFor(String restaurantId, String userId) {
+        return UUID.nameUUIDFromBytes((restaurantId + ":" + userId).getBytes(StandardCharsets.UTF_8)).toString();
     }
 
     private Restaurant getRestaurantOrThrow(String restaurantId) {
-        return restaurantRepository
-                .findById(restaurantId)
+        // Served from the restaurant cache when possible
+        return restaurantService
+                .getRestaurant(restaurantId)
                 .orElseThrow(() -> new RestaurantNotFoundException("Restaurant not found with id: "));
     }
 
-    private void updateRestaurantAverageRating(Restaurant restaurant) {
-        List<Review> reviews = restaurant.getReviews();
-        if (reviews.isEmpty()) {
-            restaurant.setAverageRating(0.0f);
-        } else {
-            float averageRating = (float)
-                    reviews.stream().mapToDouble(Review::getRating).average().orElse(0.0);
-            restaurant.setAverageRating(averageRating);
-        }
+    private Review getRestaurantReviewOrThrow(String restaurantId, String reviewId) {
+        return reviewRepository
+                .findById(reviewId)
+                .filter(review -> restaurantId.equals(review.getRestaurantId()))
+                .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
     }
 
     @Override
     public Page<Review> getRestaurantReviews(String restaurantId, Pageable pageable) {
-        // Get the restaurant or throw an exception if not found
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
-        // Create a list of reviews
-        List<Review> reviews = new ArrayList<>(restaurant.getReviews());
-        // Apply sorting based on the Pageable's Sort
-        Sort sort = pageable.getSort();
-        if (sort.isSorted()) {
-            Sort.Order order = sort.iterator().next();
-            String property = order.getProperty();
-            boolean isAscending = order.getDirection().isAscending();
-            Comparator<Review> comparator =
-                    switch (property) {
-                        case "datePosted" -> Comparator.comparing(Review::getDatePosted);
-                        case "rating" -> Comparator.comparing(Review::getRating);
-                        default -> Comparator.comparing(Review::getDatePosted);
-                    };
-            reviews.sort(isAscending ? comparator : comparator.reversed());
-        } else {
-            // Default sort by date descending
-            reviews.sort(Comparator.comparing(Review::getDatePosted).reversed());
+        // Verify the restaurant exists
+        getRestaurantOrThrow(restaurantId);
+        // Only datePosted and rating are sortable, defaulting to newest first
+        Sort sort = Sort.by(Sort.Direction.DESC, "datePosted");
+        Sort.Order order = pageable.getSort().stream().findFirst().orElse(null);
+        if (order != null && "rating".equals(order.getProperty())) {
+            sort = Sort.by(order.getDirection(), "rating").and(sort);
+        } else if (order != null) {
+            sort = Sort.by(order.getDirection(), "datePosted");
         }
-        // Calculate pagination boundaries
-        int start = (int) pageable.getOffset();
-        // Handle empty pages
-        if (start >= reviews.size()) {
-            return new PageImpl<>(Collections.emptyList(), pageable, reviews.size());
-        }
-        int end = Math.min((start + pageable.getPageSize()), reviews.size());
-        // Create the page of reviews
-        return new PageImpl<>(reviews.subList(start, end), pageable, reviews.size());
+        // Let Elasticsearch sort and slice the page
+        return reviewRepository.findByRestaurantId(
+                restaurantId, PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), sort));
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId")
     public Review updateReview(
             User user, String restaurantId, String reviewId, ReviewCreateUpdateRequest updatedReview) {
-        // Get the restaurant or throw an exception if not found
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
+        // Verify the restaurant exists
+        getRestaurantOrThrow(restaurantId);
         String currentUserId = user.getId();
-        // Find the review and verify ownership
-        List<Review> reviews = restaurant.getReviews();
-        Review existingReview = reviews.stream()
-                .filter(r ->
-                        r.getId().equals(reviewId) && r.getWrittenBy().getId().equals(currentUserId))
-                .findFirst()
-                .orElseThrow(() -> new ResourceNotFoundException("Review not found"));
-        // Verify the 48-hour edit window
-        if (LocalDateTime.now().isAfter(existingReview.getDatePosted().plusHours(48))) {
-            throw new ReviewNotAllowedException("Review can no longer be edited (48-hour limit exceeded)");
+        // Re-read and re-apply the edit if another writer updated the review in between
+        ReviewRevision revision = optimisticWriteRetrier.execute("updateReview", () -> {
+            // Find the review and verify ownership
+            Review existingReview = getRestaurantReviewOrThrow(restaurantId, reviewId);
+            if (!existingReview.getWrittenBy().getId().equals(currentUserId)) {
+                throw new ResourceNotFoundException("Review not found");
+            }
+            // Verify the 48-hour edit window
+            if (LocalDateTime.now().isAfter(existingReview.getDatePosted().plusHours(48))) {
+                throw new ReviewNotAllowedException("Review can no longer be edited (48-hour limit exceeded)");
+            }
+            int previousRating = existingReview.getRating();
+            List<Photo> previousPhotos = existingReview.getPhotos();
+            // Update the review content
+            existingReview.setContent(updatedReview.getContent());
+            existingReview.setRating(updatedReview.getRating());
+            existingReview.setLastEdited(LocalDateTime.now());
+            // Update photos
+            existingReview.setPhotos(updatedReview.getPhotoIds().stream()
+                    .map(url -> {
+                        Photo photo = new Photo();
+                        photo.setUrl(url);
+                        photo.setUploadDate(LocalDateTime.now());
+                        return photo;
+                    })
+                    .collect(Collectors.toList()));
+            // Save conditioned on the seq_no/primary_term that was read
+            return new ReviewRevision(reviewRepository.save(existingReview), previousRating, previousPhotos);
+        });
+        Review savedReview = revision.review();
+        // Swap the old rating for the new one in the restaurant's running totals. Elasticsearch has no
+        // transaction spanning both documents, so a crash between the save and this delta leaves the
+        // totals off by the difference (see RestaurantRatingRepository)
+        int ratingDelta = savedReview.getRating() - revision.previousRating();
+        if (ratingDelta != 0) {
+            applyRatingDelta(restaurantId, ratingDelta, 0);
         }
-        // Update the review content
-        existingReview.setContent(updatedReview.getContent());
-        existingReview.setRating(updatedReview.getRating());
-        existingReview.setLastEdited(LocalDateTime.now());
-        // Update photos
-        existingReview.setPhotos(updatedReview.getPhotoIds().stream()
-                .map(url -> {
-                    Photo photo = new Photo();
-                    photo.setUrl(url);
-                    photo.setUploadDate(LocalDateTime.now());
-                    return photo;
-                })
-                .collect(Collectors.toList()));
-        // Recalculate restaurant's average rating
-        updateRestaurantAverageRating(restaurant);
-        // Save and return the updated review
-        Restaurant savedRestaurant = restaurantRepository.save(restaurant);
-        return savedRestaurant.getReviews().stream()
-                .filter(r -> r.getId().equals(reviewId))
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("Error retrieving updated review"));
+        // Photos the edit added are now referenced by this review, the ones it dropped no longer
+        photoService.retainPhotos(PhotoLists.added(revision.previousPhotos(), savedReview.getPhotos()));
+        photoService.releasePhotos(PhotoLists.removed(revision.previousPhotos(), savedReview.getPhotos()));
+        return savedReview;
     }
 
     @Override
+    @CacheEvict(cacheNames = CacheConfig.RESTAURANTS_CACHE, key = "#restaurantId")
     public void deleteReview(String restaurantId, String reviewId) {
-        // Get the restaurant or throw an exception if not found
-        Restaurant restaurant = getRestaurantOrThrow(restaurantId);
-        // Filter out the review with the matching ID
-        List<Review> filteredReviews = restaurant.getReviews().stream()
-                .filter(review -> !reviewId.equals(review.getId()))
-                .toList();
-        // Update the restaurant's reviews
-        restaurant.setReviews(filteredReviews);
-        // Update the restaurant's average rating
-        updateRestaurantAverageRating(restaurant);
-        // Save the updated restaurant
-        restaurantRepository.save(restaurant);
+        // Verify the restaurant exists
+        getRestaurantOrThrow(restaurantId);
+        // Remove the review if it belongs to this restaurant and is unchanged since the read;
+        // a concurrent edit re-reads, a concurrent delete leaves nothing to remove
+        Optional<Review> deletedReview = optimisticWriteRetrier.execute("deleteReview", () -> reviewRepository
+                .findById(reviewId)
+                .filter(review -> restaurantId.equals(review.getRestaurantId()))
+                .filter(reviewRepository::deleteIfUnchanged));
+        // Take the rating back out of the restaurant's running totals, only for the delete that removed it
+        deletedReview.ifPresent(review -> {
+            applyRatingDelta(restaurantId, -review.getRating(), -1);
+            if (review.getPhotos() != null) {
+                photoService.releasePhotos(review.getPhotos());
+            }
+        });
     }
+
 }
@@ -0,0 +1,39 @@
+package com.mtech.restaurant.services.impl;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mtech.restaurant.exceptions.InvalidSearchRequestException;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Encodes the sort values of the last hit of a page as an opaque, URL-safe cursor that
+ * can be handed back to Elasticsearch as search_after.
+ */
+final class SearchCursorCodec {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final TypeReference<List<Object>> SORT_VALUES = new TypeReference<>() {};
+
+    private SearchCursorCodec() {}
+
+    static String encode(List<Object> sortValues) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(OBJECT_MAPPER.writeValueAsBytes(sortValues));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode search cursor", e);
+        }
+    }
+
+    static List<Object> decode(String cursor) {
+        try {
+            List<Object> sortValues = OBJECT_MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), SORT_VALUES);
+            if (sortValues == null || sortValues.isEmpty()) {
+                throw new InvalidSearchRequestException("Empty search cursor");
+            }
+            return sortValues;
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidSearchRequestException("Malformed search cursor", e);
+        }
+    }
+}
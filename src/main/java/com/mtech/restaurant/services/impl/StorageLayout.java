@@ -0,0 +1,66 @@
+package com.mtech.restaurant.services.impl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Maps stored file names to paths. When sharded, a file whose name starts with four hex characters
+ * lives two directory levels down, e.g. {@code ab/cd/abcd1234.jpg}, which keeps every directory to
+ * a few hundred entries. Other names, and every name when sharding is off, stay flat.
+ */
+final class StorageLayout {
+    private static final Pattern SHARDABLE = Pattern.compile("^[0-9a-fA-F]{4}[^/\\\\]*$");
+
+    private final boolean sharded;
+
+    StorageLayout(boolean sharded) {
+        this.sharded = sharded;
+    }
+
+    boolean isSharded() {
+        return sharded;
+    }
+
+    // Where a file is written
+    Path resolve(Path base, String filename) {
+        if (!sharded || !SHARDABLE.matcher(filename).matches()) {
+            return base.resolve(filename);
+        }
+        String prefix = filename.substring(0, 4).toLowerCase();
+        return base.resolve(prefix.substring(0, 2)).resolve(prefix.substring(2, 4)).resolve(filename);
+    }
+
+    // Where an existing file is found, falling back to the flat path for files not migrated yet
+    Path locate(Path base, String filename) {
+        Path target = resolve(base, filename);
+        if (Files.exists(target)) {
+            return target;
+        }
+        Path flat = base.resolve(filename);
+        if (!flat.equals(target) && Files.exists(flat)) {
+            return flat;
+        }
+        // The migration may have moved the file between the two checks
+        return target;
+    }
+
+    // Moves a flat file into its shard; returns false when there was nothing to move
+    boolean moveToShard(Path base, String filename) throws IOException {
+        Path flat = base.resolve(filename);
+        Path target = resolve(base, filename);
+        if (flat.equals(target) || !Files.exists(flat)) {
+            return false;
+        }
+        if (Files.exists(target)) {
+            // Already written to the shard since sharding was enabled
+            Files.delete(flat);
+        } else {
+            Files.createDirectories(target.getParent());
+            Files.move(flat, target, StandardCopyOption.ATOMIC_MOVE);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.mtech.restaurant.services.impl;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves photos stored in the flat uploads directory into the sharded layout. Runs after startup
+ * while requests are already being served; reads fall back to the flat path until a file has been
+ * moved, so the migration needs no downtime and is safe to re-run.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@ConditionalOnProperty(name = "app.storage.migrate-flat", havingValue = "true", matchIfMissing = true)
+public class StorageLayoutMigration {
+    private final FileSystemStorageService storageService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrate() {
+        try {
+            int moved = storageService.migrateFlatFiles();
+            if (moved > 0) {
+                log.info("Moved {} stored files into the sharded layout", moved);
+            }
+        } catch (RuntimeException e) {
+            log.error("Storage layout migration failed", e);
+        }
+    }
+}
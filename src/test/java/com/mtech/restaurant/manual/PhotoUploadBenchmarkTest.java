@@ -0,0 +1,117 @@
+package com.mtech.restaurant.manual;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.mtech.restaurant.services.impl.FileSystemStorageService;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+// Compares the old stream copy with the store path on multi-megabyte uploads.
+// Run with -DexcludedGroups= -Dgroups=manual
+@Tag("manual")
+@Slf4j
+public class PhotoUploadBenchmarkTest {
+    private static final int FILE_SIZE = 8 * 1024 * 1024;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 20;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void compareUploadThroughput() throws Exception {
+        byte[] content = new byte[FILE_SIZE];
+        new Random(42).nextBytes(content);
+        Path original = tempDir.resolve("original.jpg");
+        Files.write(original, content);
+
+        Path baselineDir = Files.createDirectories(tempDir.resolve("baseline"));
+        Path storeDir = tempDir.resolve("store");
+        FileSystemStorageService storageService = new FileSystemStorageService();
+        ReflectionTestUtils.setField(storageService, "storageLocation", storeDir.toString());
+        storageService.init();
+
+        for (int i = 0; i < WARMUP_ROUNDS; i++) {
+            baselineCopy(spool(original), baselineDir);
+            storageService.store(spooledFile(spool(original)), UUID.randomUUID().toString());
+        }
+
+        long baselineNanos = 0;
+        long storeNanos = 0;
+        for (int i = 0; i < MEASURED_ROUNDS; i++) {
+            // Each round gets its own spooled part, prepared outside the timed section
+            Path spooled = spool(original);
+            long start = System.nanoTime();
+            baselineCopy(spooled, baselineDir);
+            baselineNanos += System.nanoTime() - start;
+
+            MultipartFile file = spooledFile(spool(original));
+            start = System.nanoTime();
+            String stored = storageService.store(file, UUID.randomUUID().toString());
+            storeNanos += System.nanoTime() - start;
+            assertEquals(FILE_SIZE, Files.size(storeDir.resolve(stored)));
+        }
+
+        log.info(
+                "Files.copy(InputStream): {} MB/s, FileSystemStorageService.store: {} MB/s",
+                String.format("%.1f", throughput(baselineNanos)),
+                String.format("%.1f", throughput(storeNanos)));
+    }
+
+    // A fresh copy of the upload, standing in for the temp file the multipart resolver spooled
+    private Path spool(Path original) throws IOException {
+        Path spooled = Files.createTempFile(tempDir, "spooled-", ".jpg");
+        Files.copy(original, spooled, StandardCopyOption.REPLACE_EXISTING);
+        return spooled;
+    }
+
+    private void baselineCopy(Path spooled, Path targetDir) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(spooled)) {
+            Files.copy(inputStream, targetDir.resolve(UUID.randomUUID() + ".jpg"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.delete(spooled);
+    }
+
+    private double throughput(long nanos) {
+        double megabytes = (double) FILE_SIZE * MEASURED_ROUNDS / (1024 * 1024);
+        return megabytes / (nanos / 1_000_000_000d);
+    }
+
+    // Multipart file backed by a spooled file on disk, which transferTo moves into place like a servlet part
+    private MultipartFile spooledFile(Path spooled) {
+        return new MockMultipartFile("file", "photo.jpg", "image/jpeg", new byte[0]) {
+            @Override
+            public boolean isEmpty() {
+                return getSize() == 0;
+            }
+
+            @Override
+            public long getSize() {
+                return spooled.toFile().length();
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return Files.newInputStream(spooled);
+            }
+
+            @Override
+            public void transferTo(File dest) throws IOException {
+                Files.move(spooled, dest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        };
+    }
+}
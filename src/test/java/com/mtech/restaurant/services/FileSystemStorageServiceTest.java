@@ -0,0 +1,133 @@
+package com.mtech.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mtech.restaurant.services.impl.FileSystemStorageService;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class FileSystemStorageServiceTest {
+    @TempDir
+    Path tempDir;
+
+    private FileSystemStorageService storageService;
+
+    @BeforeEach
+    public void setUp() {
+        storageService = new FileSystemStorageService();
+        ReflectionTestUtils.setField(storageService, "storageLocation", tempDir.toString());
+        ReflectionTestUtils.setField(storageService, "contentAddressed", true);
+        storageService.init();
+    }
+
+    @Test
+    public void testStore_duplicateContentSharesOneBlob() throws Exception {
+        String first = storageService.store(photo("a.jpg", "same bytes"), "photo-1");
+        String second = storageService.store(photo("b.jpg", "same bytes"), "photo-2");
+        String other = storageService.store(photo("c.jpg", "other bytes"), "photo-3");
+
+        assertEquals(first, second);
+        assertNotEquals(first, other);
+        assertTrue(first.endsWith(".jpg"));
+        // No temp files are left behind next to the blobs
+        try (var files = Files.list(tempDir)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    public void testRelease_deletesBlobAfterLastReference() {
+        String filename = storageService.store(photo("a.jpg", "same bytes"), "photo-1");
+        storageService.retain(filename);
+        storageService.retain(filename);
+
+        assertFalse(storageService.release(filename));
+        assertTrue(Files.exists(tempDir.resolve(filename)));
+
+        assertTrue(storageService.release(filename));
+        assertFalse(Files.exists(tempDir.resolve(filename)));
+    }
+
+    @Test
+    public void testRelease_keepsBlobWithoutReferences() {
+        String filename = storageService.store(photo("a.jpg", "same bytes"), "photo-1");
+
+        // Released by an entity that never retained it
+        assertFalse(storageService.release(filename));
+        assertTrue(Files.exists(tempDir.resolve(filename)));
+    }
+
+    @Test
+    public void testRelease_neverDeletesPlainFiles() {
+        FileSystemStorageService plainService = new FileSystemStorageService();
+        ReflectionTestUtils.setField(plainService, "storageLocation", tempDir.toString());
+        ReflectionTestUtils.setField(plainService, "indexEnabled", false);
+        plainService.init();
+        String filename = plainService.store(photo("a.jpg", "bytes"), "photo-1");
+
+        assertFalse(plainService.retain(filename));
+        assertFalse(plainService.release(filename));
+        assertTrue(plainService.loadAsResource(filename).isPresent());
+    }
+
+    @Test
+    public void testLoadAsResource_servesContentTypeAndDigestFromIndex() throws Exception {
+        String filename = storageService.store(photo("a.jpg", "same bytes"), "photo-1");
+        FileSystemStorageService indexedService = new FileSystemStorageService();
+        ReflectionTestUtils.setField(indexedService, "storageLocation", tempDir.toString());
+        ReflectionTestUtils.setField(indexedService, "contentAddressed", true);
+        ReflectionTestUtils.setField(indexedService, "indexEnabled", true);
+        ReflectionTestUtils.setField(indexedService, "indexScanThreads", 1);
+        indexedService.init();
+
+        // The scan runs in the background; found by the scan, the digest comes from the blob name
+        StoredFileAttributes attributes = awaitIndexed(indexedService, filename);
+        String expectedDigest = Base64.getEncoder()
+                .encodeToString(MessageDigest.getInstance("SHA-256").digest("same bytes".getBytes()));
+        assertEquals(MediaType.IMAGE_JPEG, attributes.getContentType());
+        assertEquals(Optional.of(expectedDigest), attributes.getDigest());
+    }
+
+    @Test
+    public void testMigrateFlatFiles_movesFilesIntoShards() throws Exception {
+        Files.writeString(tempDir.resolve("abcd1234.jpg"), "legacy");
+        FileSystemStorageService shardedService = new FileSystemStorageService();
+        ReflectionTestUtils.setField(shardedService, "storageLocation", tempDir.toString());
+        ReflectionTestUtils.setField(shardedService, "sharded", true);
+        shardedService.init();
+
+        // Flat files stay readable before the migration has run
+        assertTrue(shardedService.loadAsResource("abcd1234.jpg").isPresent());
+
+        assertEquals(1, shardedService.migrateFlatFiles());
+        assertTrue(Files.exists(tempDir.resolve("ab/cd/abcd1234.jpg")));
+        assertFalse(Files.exists(tempDir.resolve("abcd1234.jpg")));
+        assertTrue(shardedService.loadAsResource("abcd1234.jpg").isPresent());
+    }
+
+    private static StoredFileAttributes awaitIndexed(FileSystemStorageService service, String filename)
+            throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            Optional<Resource> resource = service.loadAsResource(filename);
+            if (resource.orElse(null) instanceof StoredFileAttributes attributes) {
+                return attributes;
+            }
+            Thread.sleep(10);
+        }
+        return fail("Stored file was never indexed: " + filename);
+    }
+
+    private static MockMultipartFile photo(String name, String content) {
+        return new MockMultipartFile("file", name, "image/jpeg", content.getBytes());
+    }
+}
@@ -0,0 +1,56 @@
+package com.mtech.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.mtech.restaurant.domain.OpeningIntervals;
+import com.mtech.restaurant.domain.entities.MinuteRange;
+import com.mtech.restaurant.domain.entities.OperatingHours;
+import com.mtech.restaurant.domain.entities.TimeRange;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class OpeningIntervalsTest {
+
+    @Test
+    void sameDayHoursBecomeOneRange() {
+        OperatingHours hours = OperatingHours.builder()
+                .tuesday(new TimeRange("11:30", "22:00"))
+                .build();
+
+        assertEquals(List.of(new MinuteRange(1440 + 690, 1440 + 1320)), OpeningIntervals.of(hours));
+    }
+
+    @Test
+    void hoursPastMidnightRunIntoTheNextDay() {
+        OperatingHours hours = OperatingHours.builder()
+                .friday(new TimeRange("18:00", "2:00"))
+                .build();
+
+        List<MinuteRange> intervals = OpeningIntervals.of(hours);
+
+        assertEquals(List.of(new MinuteRange(4 * 1440 + 1080, 5 * 1440 + 120)), intervals);
+        int saturdayOneAm = OpeningIntervals.minuteOfWeek(LocalDateTime.of(2026, 10, 17, 1, 0));
+        assertTrue(saturdayOneAm >= intervals.get(0).getGte() && saturdayOneAm < intervals.get(0).getLt());
+    }
+
+    @Test
+    void sundayNightHoursWrapToMonday() {
+        OperatingHours hours = OperatingHours.builder()
+                .sunday(new TimeRange("20:00", "1:30"))
+                .build();
+
+        assertEquals(
+                List.of(new MinuteRange(6 * 1440 + 1200, OpeningIntervals.MINUTES_PER_WEEK), new MinuteRange(0, 90)),
+                OpeningIntervals.of(hours));
+    }
+
+    @Test
+    void malformedTimesAreSkipped() {
+        OperatingHours hours = OperatingHours.builder()
+                .monday(new TimeRange("noon", "22:00"))
+                .build();
+
+        assertTrue(OpeningIntervals.of(hours).isEmpty());
+    }
+}
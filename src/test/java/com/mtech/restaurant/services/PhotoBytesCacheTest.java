@@ -0,0 +1,34 @@
+package com.mtech.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.mtech.restaurant.services.impl.PhotoBytesCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+public class PhotoBytesCacheTest {
+    private final StorageService storageService = mock(StorageService.class);
+    private final PhotoBytesCache cache =
+            new PhotoBytesCache(storageService, new SimpleMeterRegistry(), true, 1024, 4); // 4 byte entries
+
+    @Test
+    void tooLargePhotoIsServedFromTheSingleStorageLookup() {
+        Resource photo = new ByteArrayResource("larger than four bytes".getBytes());
+        when(storageService.loadAsResource("big.jpg")).thenReturn(Optional.of(photo));
+
+        assertEquals(Optional.of(photo), cache.load("big.jpg"));
+        verify(storageService, times(1)).loadAsResource("big.jpg");
+    }
+
+    @Test
+    void missingPhotoIsLookedUpOnce() {
+        when(storageService.loadAsResource("missing.jpg")).thenReturn(Optional.empty());
+
+        assertTrue(cache.load("missing.jpg").isEmpty());
+        verify(storageService, times(1)).loadAsResource("missing.jpg");
+    }
+}
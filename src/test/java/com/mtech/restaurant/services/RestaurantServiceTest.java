@@ -8,7 +8,11 @@ import com.mtech.restaurant.domain.RestaurantCreateUpdateRequest;
 import com.mtech.restaurant.domain.entities.Address;
 import com.mtech.restaurant.domain.entities.Restaurant;
 import com.mtech.restaurant.repositories.RestaurantRepository;
+import com.mtech.restaurant.repositories.ReviewRepository;
+import com.mtech.restaurant.services.impl.OptimisticWriteRetrier;
 import com.mtech.restaurant.services.impl.RestaurantServiceImpl;
+import com.mtech.restaurant.services.impl.SingleFlight;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validator;
 import java.util.List;
@@ -19,7 +23,10 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 
 @ExtendWith(MockitoExtension.class)
 public class RestaurantServiceTest {
@@ -27,6 +34,9 @@ public class RestaurantServiceTest {
     @Mock
     private RestaurantRepository restaurantRepository; // Mocking the repository
 
+    @Mock
+    private ReviewRepository reviewRepository; // Mocking the review repository
+
     @Mock
     private Validator validator; // Mocking the validator
 
@@ -36,6 +46,17 @@ public class RestaurantServiceTest {
     @Mock
     private GeoLocationService geoLocationService; // Mocking the GeoLocationService
 
+    @Spy
+    private OptimisticWriteRetrier optimisticWriteRetrier =
+            new OptimisticWriteRetrier(new SimpleMeterRegistry(), 3, 0); // Real retry loop without backoff
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher; // Mocking the event publisher
+
+    @Spy
+    private SingleFlight<String, Optional<Restaurant>> restaurantLoads =
+            new SingleFlight<>("restaurant", new SimpleMeterRegistry()); // Real in-flight deduplication
+
     @InjectMocks
     private RestaurantServiceImpl restaurantService; // Actual service under test
 
@@ -210,15 +231,50 @@ public class RestaurantServiceTest {
         verify(restaurantRepository).save(existingRestaurant);
     }
 
+    // Test that a conflicting concurrent write is retried against a fresh read
+    @Test
+    void testUpdateRestaurant_retriesOnVersionConflict() {
+        String restaurantId = "123";
+        Address address = new Address();
+        address.setCity("London");
+
+        RestaurantCreateUpdateRequest updateRequest = new RestaurantCreateUpdateRequest();
+        updateRequest.setName("Updated Restaurant");
+        updateRequest.setAddress(address);
+        updateRequest.setPhotoIds(List.of());
+
+        Restaurant staleRestaurant = new Restaurant();
+        staleRestaurant.setId(restaurantId);
+        Restaurant freshRestaurant = new Restaurant();
+        freshRestaurant.setId(restaurantId);
+        freshRestaurant.setTotalReviews(3);
+
+        when(geoLocationService.geoLocate(address)).thenReturn(new GeoLocation(51.5, -0.12));
+        when(restaurantRepository.findById(restaurantId))
+                .thenReturn(Optional.of(staleRestaurant))
+                .thenReturn(Optional.of(freshRestaurant));
+        when(restaurantRepository.save(staleRestaurant))
+                .thenThrow(new OptimisticLockingFailureException("version conflict"));
+        when(restaurantRepository.save(freshRestaurant)).thenReturn(freshRestaurant);
+
+        Restaurant updatedRestaurant = restaurantService.updateRestaurant(restaurantId, updateRequest);
+
+        assertSame(freshRestaurant, updatedRestaurant);
+        assertEquals("Updated Restaurant", updatedRestaurant.getName());
+        assertEquals(3, updatedRestaurant.getTotalReviews());
+        verify(restaurantRepository, times(2)).findById(restaurantId);
+    }
+
     // Test for restaurant deletion (optional)
     @Test
     public void testDeleteRestaurant() {
         String restaurantId = "123";
 
-        // No need to mock findById if it's not used inside deleteRestaurant
+        // Unstubbed lookups find no restaurant and no reviews, so there are no photos to release
         restaurantService.deleteRestaurant(restaurantId);
 
         // Just verify deleteById is called
         verify(restaurantRepository, times(1)).deleteById(restaurantId);
+        verify(reviewRepository, times(1)).deleteByRestaurantId(restaurantId);
     }
 }
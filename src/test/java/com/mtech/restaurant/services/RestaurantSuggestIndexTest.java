@@ -0,0 +1,94 @@
+package com.mtech.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
+import com.mtech.restaurant.domain.RestaurantRating;
+import com.mtech.restaurant.domain.RestaurantSuggestion;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.services.impl.RestaurantSuggestIndex;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+
+public class RestaurantSuggestIndexTest {
+    private final RestaurantSuggestIndex index = new RestaurantSuggestIndex(mock(ElasticsearchOperations.class));
+
+    @Test
+    void nullCuisineIsNotIndexedAsAWord() {
+        save("1", "Luigi's", null, 5);
+
+        assertTrue(index.suggest("null", 10).isEmpty());
+        assertEquals(List.of("1"), ids(index.suggest("lui", 10)));
+    }
+
+    @Test
+    void shortPrefixReturnsMostReviewedFirst() {
+        for (int i = 0; i < 30; i++) {
+            save("r" + i, "Pizza " + i, "Italian", i);
+        }
+
+        assertEquals(List.of("r29", "r28", "r27"), ids(index.suggest("p", 3)));
+    }
+
+    @Test
+    void keptListFollowsPopularityChanges() {
+        for (int i = 0; i < 30; i++) {
+            save("r" + i, "Pizza " + i, "Italian", i);
+        }
+        index.suggest("pi", 3);
+
+        // Rises into the kept list, then the leader drops out of it
+        save("r0", "Pizza 0", "Italian", 100);
+        save("r29", "Pizza 29", "Italian", 1);
+
+        assertEquals(List.of("r0", "r28", "r27"), ids(index.suggest("pi", 3)));
+    }
+
+    @Test
+    void deletedRestaurantLeavesKeptList() {
+        save("1", "Pasta Bar", "Italian", 10);
+        save("2", "Pasta Place", "Italian", 5);
+        index.suggest("pa", 10);
+
+        index.onRestaurantChanged(RestaurantChangedEvent.deleted("1"));
+
+        assertEquals(List.of("2"), ids(index.suggest("pa", 10)));
+    }
+
+    @Test
+    void olderRatingArrivingLateIsSkipped() {
+        save("1", "Pasta Bar", "Italian", 1);
+        save("2", "Pasta Place", "Italian", 5);
+
+        index.onRestaurantChanged(RestaurantChangedEvent.rated("1", new RestaurantRating(4f, 10, 8)));
+        index.onRestaurantChanged(RestaurantChangedEvent.rated("1", new RestaurantRating(4f, 2, 7)));
+
+        assertEquals(List.of("1", "2"), ids(index.suggest("pa", 10)));
+    }
+
+    @Test
+    void leadingWordsMustMatchWholeWords() {
+        for (int i = 0; i < 30; i++) {
+            save("r" + i, "Sushi " + i, "Japanese", 100 + i);
+        }
+        save("bar", "Sushi Bar", "Japanese", 1);
+
+        assertEquals(List.of("bar"), ids(index.suggest("bar s", 10)));
+    }
+
+    private void save(String id, String name, String cuisineType, int totalReviews) {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(id);
+        restaurant.setName(name);
+        restaurant.setCuisineType(cuisineType);
+        restaurant.setTotalReviews(totalReviews);
+        restaurant.setAverageRating(4f);
+        index.onRestaurantChanged(RestaurantChangedEvent.saved(restaurant));
+    }
+
+    private static List<String> ids(List<RestaurantSuggestion> suggestions) {
+        return suggestions.stream().map(RestaurantSuggestion::getId).toList();
+    }
+}
@@ -0,0 +1,315 @@
+package com.mtech.restaurant.services;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.mtech.restaurant.domain.RestaurantChangedEvent;
+import com.mtech.restaurant.domain.RestaurantRating;
+import com.mtech.restaurant.domain.ReviewCreateUpdateRequest;
+import com.mtech.restaurant.domain.entities.Photo;
+import com.mtech.restaurant.domain.entities.Restaurant;
+import com.mtech.restaurant.domain.entities.Review;
+import com.mtech.restaurant.domain.entities.User;
+import com.mtech.restaurant.exceptions.ReviewNotAllowedException;
+import com.mtech.restaurant.repositories.RestaurantRepository;
+import com.mtech.restaurant.repositories.ReviewRepository;
+import com.mtech.restaurant.services.impl.OptimisticWriteRetrier;
+import com.mtech.restaurant.services.impl.ReviewServiceImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+@ExtendWith(MockitoExtension.class)
+public class ReviewServiceTest {
+    private static final String RESTAURANT_ID = "restaurant-1";
+    private static final String REVIEW_ID = "review-1";
+
+    @Mock
+    private RestaurantRepository restaurantRepository;
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private RestaurantService restaurantService;
+
+    @Mock
+    private PhotoService photoService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private OptimisticWriteRetrier optimisticWriteRetrier =
+            new OptimisticWriteRetrier(new SimpleMeterRegistry(), 3, 0); // Real retry loop without backoff
+
+    @InjectMocks
+    private ReviewServiceImpl reviewService;
+
+    private final User author = User.builder().id("user-1").username("alice").build();
+
+    @BeforeEach
+    public void setUp() {
+        Restaurant restaurant = new Restaurant();
+        restaurant.setId(RESTAURANT_ID);
+        lenient().when(restaurantService.getRestaurant(RESTAURANT_ID)).thenReturn(Optional.of(restaurant));
+    }
+
+    @Test
+    void createReview_addsRatingToRestaurantTotals() {
+        when(reviewRepository.createIfAbsent(any(Review.class))).thenReturn(true);
+
+        Review created = reviewService.createReview(author, RESTAURANT_ID, request(4));
+
+        assertEquals(RESTAURANT_ID, created.getRestaurantId());
+        assertEquals(4, created.getRating());
+        verify(restaurantRepository).applyRatingDelta(RESTAURANT_ID, 4, 1);
+    }
+
+    @Test
+    void createReview_publishesRatingReturnedByTheUpdate() {
+        RestaurantRating rating = new RestaurantRating(4f, 1, 7);
+        when(reviewRepository.createIfAbsent(any(Review.class))).thenReturn(true);
+        when(restaurantRepository.applyRatingDelta(RESTAURANT_ID, 4, 1)).thenReturn(Optional.of(rating));
+
+        reviewService.createReview(author, RESTAURANT_ID, request(4));
+
+        verify(eventPublisher).publishEvent(RestaurantChangedEvent.rated(RESTAURANT_ID, rating));
+        verify(restaurantRepository, never()).findById(any());
+    }
+
+    @Test
+    void createReview_usesTheSameIdForTheSameUserAndRestaurant() {
+        when(reviewRepository.createIfAbsent(any(Review.class))).thenReturn(true);
+
+        Review first = reviewService.createReview(author, RESTAURANT_ID, request(4));
+        Review second = reviewService.createReview(author, RESTAURANT_ID, request(2));
+
+        assertEquals(first.getId(), second.getId());
+    }
+
+    @Test
+    void createReview_rejectsExistingReviewFromSameUser() {
+        when(reviewRepository.existsByRestaurantIdAndWrittenById(RESTAURANT_ID, author.getId())).thenReturn(true);
+
+        assertThrows(
+                ReviewNotAllowedException.class, () -> reviewService.createReview(author, RESTAURANT_ID, request(4)));
+        verify(reviewRepository, never()).createIfAbsent(any());
+        verifyNoInteractions(restaurantRepository);
+    }
+
+    @Test
+    void createReview_rejectsLoserOfConcurrentCreate() {
+        // The exists check passed, but another request created the review first
+        when(reviewRepository.createIfAbsent(any(Review.class))).thenReturn(false);
+
+        assertThrows(
+                ReviewNotAllowedException.class, () -> reviewService.createReview(author, RESTAURANT_ID, request(4)));
+        verifyNoInteractions(restaurantRepository);
+    }
+
+    @Test
+    void deleteReview_takesRatingOutOfRestaurantTotals() {
+        Review review = existingReview(5);
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.deleteIfUnchanged(review)).thenReturn(true);
+
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+
+        verify(restaurantRepository).applyRatingDelta(RESTAURANT_ID, -5, -1);
+    }
+
+    @Test
+    void deleteReview_concurrentDeleteAppliesDeltaOnce() {
+        // Both requests read the review; only the first delete removes it
+        Review review = existingReview(5);
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.deleteIfUnchanged(review)).thenReturn(true, false);
+
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+
+        verify(restaurantRepository, times(1)).applyRatingDelta(RESTAURANT_ID, -5, -1);
+    }
+
+    @Test
+    void deleteReview_rereadsAfterConflictingEdit() {
+        // An edit changed the rating between the read and the delete
+        Review stale = existingReview(5);
+        Review edited = existingReview(2);
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(stale), Optional.of(edited));
+        when(reviewRepository.deleteIfUnchanged(stale))
+                .thenThrow(new OptimisticLockingFailureException("seq_no conflict"));
+        when(reviewRepository.deleteIfUnchanged(edited)).thenReturn(true);
+
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+
+        ArgumentCaptor<Integer> ratingDelta = ArgumentCaptor.forClass(Integer.class);
+        verify(restaurantRepository).applyRatingDelta(eq(RESTAURANT_ID), ratingDelta.capture(), eq(-1));
+        assertEquals(-2, ratingDelta.getValue());
+    }
+
+    @Test
+    void deleteReview_ignoresReviewOfAnotherRestaurant() {
+        Review review = existingReview(5);
+        review.setRestaurantId("restaurant-2");
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+
+        verify(reviewRepository, never()).deleteIfUnchanged(any());
+        verifyNoInteractions(restaurantRepository);
+    }
+
+    @Test
+    void updateReview_swapsOldRatingForNewInRestaurantTotals() {
+        Review review = existingReview(2);
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        Review updated = reviewService.updateReview(author, RESTAURANT_ID, REVIEW_ID, request(5));
+
+        assertEquals(5, updated.getRating());
+        verify(restaurantRepository).applyRatingDelta(RESTAURANT_ID, 3, 0);
+    }
+
+    @Test
+    void updateReview_leavesTotalsAloneWhenRatingIsUnchanged() {
+        Review review = existingReview(4);
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        reviewService.updateReview(author, RESTAURANT_ID, REVIEW_ID, request(4));
+
+        verifyNoInteractions(restaurantRepository);
+    }
+
+    @Test
+    void updateReview_retriesOnConflictAndAppliesDeltaOnce() {
+        when(reviewRepository.findById(REVIEW_ID))
+                .thenReturn(Optional.of(existingReview(2)), Optional.of(existingReview(3)));
+        when(reviewRepository.save(any(Review.class)))
+                .thenThrow(new OptimisticLockingFailureException("seq_no conflict"))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        reviewService.updateReview(author, RESTAURANT_ID, REVIEW_ID, request(5));
+
+        // The delta is taken against the rating of the re-read review
+        verify(restaurantRepository, times(1)).applyRatingDelta(RESTAURANT_ID, 2, 0);
+    }
+
+    @Test
+    void updateReview_retainsAddedAndReleasesDroppedPhotos() {
+        Photo dropped = photo("dropped.jpg");
+        Review review = existingReview(4);
+        review.setPhotos(List.of(photo("kept.jpg"), dropped));
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.save(any(Review.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        ReviewCreateUpdateRequest request = request(4);
+        request.setPhotoIds(List.of("kept.jpg", "added.jpg"));
+
+        reviewService.updateReview(author, RESTAURANT_ID, REVIEW_ID, request);
+
+        verify(photoService)
+                .retainPhotos(argThat((Collection<Photo> added) ->
+                        added.size() == 1 && "added.jpg".equals(added.iterator().next().getUrl())));
+        verify(photoService).releasePhotos(List.of(dropped));
+    }
+
+    @Test
+    void deleteReview_releasesItsPhotos() {
+        Review review = existingReview(5);
+        review.setPhotos(List.of(photo("a.jpg")));
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+        when(reviewRepository.deleteIfUnchanged(review)).thenReturn(true);
+
+        reviewService.deleteReview(RESTAURANT_ID, REVIEW_ID);
+
+        verify(photoService).releasePhotos(review.getPhotos());
+    }
+
+    @Test
+    void updateReview_rejectsEditAfter48Hours() {
+        Review review = existingReview(2);
+        review.setDatePosted(LocalDateTime.now().minusHours(49));
+        when(reviewRepository.findById(REVIEW_ID)).thenReturn(Optional.of(review));
+
+        assertThrows(
+                ReviewNotAllowedException.class,
+                () -> reviewService.updateReview(author, RESTAURANT_ID, REVIEW_ID, request(5)));
+        verify(reviewRepository, never()).save(any());
+        verifyNoInteractions(restaurantRepository);
+    }
+
+    @Test
+    void getRestaurantReviews_pagesByRestaurantNewestFirst() {
+        Page<Review> page = new PageImpl<>(List.of(existingReview(5)));
+        when(reviewRepository.findByRestaurantId(eq(RESTAURANT_ID), any(Pageable.class))).thenReturn(page);
+
+        Page<Review> result = reviewService.getRestaurantReviews(RESTAURANT_ID, PageRequest.of(2, 10));
+
+        assertSame(page, result);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(reviewRepository).findByRestaurantId(eq(RESTAURANT_ID), pageable.capture());
+        assertEquals(2, pageable.getValue().getPageNumber());
+        assertEquals(10, pageable.getValue().getPageSize());
+        assertEquals(Sort.by(Sort.Direction.DESC, "datePosted"), pageable.getValue().getSort());
+    }
+
+    @Test
+    void getRestaurantReviews_sortsByRatingThenNewest() {
+        when(reviewRepository.findByRestaurantId(eq(RESTAURANT_ID), any(Pageable.class))).thenReturn(Page.empty());
+
+        reviewService.getRestaurantReviews(RESTAURANT_ID, PageRequest.of(0, 20, Sort.by(Sort.Direction.ASC, "rating")));
+
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(reviewRepository).findByRestaurantId(eq(RESTAURANT_ID), pageable.capture());
+        assertEquals(
+                Sort.by(Sort.Direction.ASC, "rating").and(Sort.by(Sort.Direction.DESC, "datePosted")),
+                pageable.getValue().getSort());
+    }
+
+    private static ReviewCreateUpdateRequest request(int rating) {
+        ReviewCreateUpdateRequest request = new ReviewCreateUpdateRequest();
+        request.setContent("Great food");
+        request.setRating(rating);
+        request.setPhotoIds(List.of());
+        return request;
+    }
+
+    private static Photo photo(String url) {
+        Photo photo = new Photo();
+        photo.setUrl(url);
+        return photo;
+    }
+
+    private Review existingReview(int rating) {
+        LocalDateTime posted = LocalDateTime.now().minusHours(1);
+        return Review.builder()
+                .id(REVIEW_ID)
+                .restaurantId(RESTAURANT_ID)
+                .content("Great food")
+                .rating(rating)
+                .datePosted(posted)
+                .lastEdited(posted)
+                .writtenBy(author)
+                .build();
+    }
+}